@@ -0,0 +1,140 @@
+package analysis.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * <h1>BaselineComparison</h1>
+ * Compares the CSV results of two JMH runs, such as a baseline run before changing the project and a run afterwards.
+ * Each benchmark (and secondary metric, such as the bytes allocated per operation reported by the <code>gc</code> profiler)
+ * is reported with its relative change, which is marked as significant if it exceeds the sum of the two score errors.
+ * @author Manios Krasanakis
+ */
+public class BaselineComparison {
+	private static final String PACKAGE_PREFIX = BaselineComparison.class.getPackage().getName()+".";
+	/**
+	 * <h1>Result</h1>
+	 * A score of a benchmark, identified by the benchmark's name, mode and parameters.
+	 */
+	private static class Result {
+		private String unit;
+		private double score;
+		private double error;
+	}
+
+	/**
+	 * Prints a comparison report.
+	 * @param args the baseline CSV file and the CSV file of the compared results
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length!=2) {
+			System.err.println("Usage: BaselineComparison <baseline.csv> <results.csv>");
+			System.exit(1);
+		}
+		if(!Files.isRegularFile(Paths.get(args[0]))) {
+			System.err.println(args[0]+": baseline not found, copy the results of a run to create it");
+			System.exit(1);
+		}
+		LinkedHashMap<String, Result> baseline = readResults(args[0]);
+		LinkedHashMap<String, Result> results = readResults(args[1]);
+		System.out.println(String.format(Locale.ROOT, "%-60s %16s %16s %9s  %s", "Benchmark", "Baseline", "Current", "Change", "Unit"));
+		for(String key : results.keySet()) {
+			Result current = results.get(key);
+			Result previous = baseline.get(key);
+			if(previous==null || !previous.unit.equals(current.unit)) {
+				System.out.println(String.format(Locale.ROOT, "%-60s %16s %16.3f %9s  %s", key, "-", current.score, "new", current.unit));
+				continue;
+			}
+			double change = previous.score==0?0:100*(current.score-previous.score)/previous.score;
+			double errors = (Double.isNaN(previous.error)?0:previous.error)+(Double.isNaN(current.error)?0:current.error);
+			String significance = Math.abs(current.score-previous.score)>errors?" *":"";
+			System.out.println(String.format(Locale.ROOT, "%-60s %16.3f %16.3f %+8.1f%%  %s%s", key, previous.score, current.score, change, current.unit, significance));
+		}
+		for(String key : baseline.keySet())
+			if(!results.containsKey(key))
+				System.out.println(String.format(Locale.ROOT, "%-60s %16.3f %16s %9s  %s", key, baseline.get(key).score, "-", "removed", baseline.get(key).unit));
+		System.out.println("* the change exceeds the sum of score errors");
+	}
+	/**
+	 * <h1>readResults</h1>
+	 * @param path a CSV file written by JMH with <code>-rf csv</code>
+	 * @return the results of the file, keyed by benchmark name, mode and parameters
+	 */
+	private static LinkedHashMap<String, Result> readResults(String path) throws IOException {
+		List<String> lines = Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8);
+		LinkedHashMap<String, Result> results = new LinkedHashMap<String, Result>();
+		if(lines.isEmpty())
+			return results;
+		ArrayList<String> header = splitLine(lines.get(0));
+		int benchmarkColumn = header.indexOf("Benchmark");
+		int modeColumn = header.indexOf("Mode");
+		int scoreColumn = header.indexOf("Score");
+		int errorColumn = header.indexOf("Score Error (99.9%)");
+		int unitColumn = header.indexOf("Unit");
+		if(benchmarkColumn==-1 || scoreColumn==-1 || unitColumn==-1)
+			throw new RuntimeException(path+": not a JMH CSV file");
+		for(int i=1;i<lines.size();i++) {
+			if(lines.get(i).trim().isEmpty())
+				continue;
+			ArrayList<String> fields = splitLine(lines.get(i));
+			String benchmark = fields.get(benchmarkColumn);
+			if(benchmark.startsWith(PACKAGE_PREFIX))
+				benchmark = benchmark.substring(PACKAGE_PREFIX.length());
+			StringBuilder key = new StringBuilder(benchmark);
+			if(modeColumn!=-1)
+				key.append(" (").append(fields.get(modeColumn)).append(')');
+			for(int column=0;column<header.size() && column<fields.size();column++)
+				if(header.get(column).startsWith("Param: ") && !fields.get(column).isEmpty())
+					key.append(' ').append(header.get(column).substring(7)).append('=').append(fields.get(column));
+			Result result = new Result();
+			result.unit = fields.get(unitColumn);
+			result.score = parseNumber(fields.get(scoreColumn));
+			result.error = errorColumn==-1?Double.NaN:parseNumber(fields.get(errorColumn));
+			results.put(key.toString(), result);
+		}
+		return results;
+	}
+	private static double parseNumber(String text) {
+		try {
+			return Double.parseDouble(text.replace(',', '.'));
+		}
+		catch(NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+	/**
+	 * <h1>splitLine</h1>
+	 * @param line a CSV line, whose fields may be quoted
+	 * @return the unquoted fields of the line
+	 */
+	private static ArrayList<String> splitLine(String line) {
+		ArrayList<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for(int i=0;i<line.length();i++) {
+			char c = line.charAt(i);
+			if(c=='"') {
+				if(quoted && i+1<line.length() && line.charAt(i+1)=='"') {
+					field.append(c);
+					i++;
+				}
+				else
+					quoted = !quoted;
+			}
+			else if(c==',' && !quoted) {
+				fields.add(field.toString());
+				field.setLength(0);
+			}
+			else
+				field.append(c);
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+}
@@ -0,0 +1,49 @@
+package analysis.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+
+/**
+ * <h1>BenchmarkFiles</h1>
+ * Locates the files used by benchmarks. By default, benchmarks analyze the sources of this project and the classes
+ * compiled from them, which can be changed by passing <code>-jvmArgsAppend "-Dbenchmark.project=... -Dbenchmark.classes=..."</code>
+ * to JMH.
+ * @author Manios Krasanakis
+ */
+class BenchmarkFiles {
+	/**
+	 * <h1>getProjectPath</h1>
+	 * @return the directory of the Java sources to analyze
+	 */
+	public static String getProjectPath() {
+		return System.getProperty("benchmark.project", "../src");
+	}
+	/**
+	 * <h1>getClassesPath</h1>
+	 * @return the directory of the compiled classes to import
+	 */
+	public static String getClassesPath() {
+		return System.getProperty("benchmark.classes", "target/classes");
+	}
+	/**
+	 * <h1>listFiles</h1>
+	 * @param path a directory path
+	 * @param extension the extension of the files to list
+	 * @param files the list in which to append the paths of files found under the directory and its sub-directories
+	 * @return the given list of files
+	 */
+	public static ArrayList<String> listFiles(String path, String extension, ArrayList<String> files) {
+		File[] fList = new File(path).listFiles();
+		if(fList==null)
+			throw new RuntimeException("Benchmark directory not found: "+new File(path).getAbsolutePath());
+		for(File file : fList) {
+			if(file.isFile()) {
+				if(file.getPath().endsWith(extension))
+					files.add(file.getPath());
+			}
+			else if(file.isDirectory())
+				listFiles(file.getPath(), extension, files);
+		}
+		return files;
+	}
+}
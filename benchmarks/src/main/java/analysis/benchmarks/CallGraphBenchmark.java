@@ -0,0 +1,76 @@
+package analysis.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import analysis.code.ASTEntity;
+import analysis.code.ASTProject;
+import analysis.code.ASTProjectImporter;
+import analysis.code.CallGraph;
+import analysis.code.ClassObject;
+import analysis.code.SparceMatrix;
+
+/**
+ * <h1>CallGraphBenchmark</h1>
+ * Measures call resolution and call graph creation for the methods of a project. Since projects cache resolved calls,
+ * caches are cleared with <code>updateProject</code> before each invocation, which is not measured.
+ * @author Manios Krasanakis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CallGraphBenchmark {
+	private ASTProject project;
+	private ASTProjectImporter importer;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		project = new ASTProject(BenchmarkFiles.getProjectPath());
+		importer = new ASTProjectImporter();
+		for(String file : BenchmarkFiles.listFiles(BenchmarkFiles.getProjectPath(), ".java", new ArrayList<String>()))
+			importer.addClassObject(new ClassObject(file));
+	}
+	@Setup(Level.Invocation)
+	public void clearCalls() {
+		project.updateProject();
+		importer.updateProject();
+	}
+	@Benchmark
+	public void getCalledMethodsBy(Blackhole blackhole) {
+		for(ASTEntity method : project.getAllMethods())
+			blackhole.consume(project.getCalledMethodsBy(method));
+	}
+	@Benchmark
+	public double[][] generateTraversalMatrix() {
+		return project.generateTraversalMatrix();
+	}
+	@Benchmark
+	public CallGraph generateCallGraph() {
+		return project.generateCallGraph();
+	}
+	@Benchmark
+	public SparceMatrix createCallGraph() throws Exception {
+		return importer.createCallGraph(1);
+	}
+	@Benchmark
+	public SparceMatrix createCallGraphParallel() throws Exception {
+		return importer.createCallGraph();
+	}
+}
@@ -0,0 +1,39 @@
+package analysis.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import analysis.compiled.CompiledProjectImporter;
+
+/**
+ * <h1>CompiledImportBenchmark</h1>
+ * Measures importing the calls of compiled classes with {@link CompiledProjectImporter#importPath(String, int)}.
+ * @author Manios Krasanakis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompiledImportBenchmark {
+	@Param({"1", "4"})
+	public int parallelism;
+
+	@Benchmark
+	public CompiledProjectImporter importPath() {
+		CompiledProjectImporter importer = new CompiledProjectImporter();
+		importer.importPath(BenchmarkFiles.getClassesPath(), parallelism);
+		return importer;
+	}
+}
@@ -0,0 +1,70 @@
+package analysis.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import analysis.code.ASTEntityBuilder;
+import analysis.code.ClassObject;
+import analysis.code.CleanComments;
+
+/**
+ * <h1>ParsingBenchmark</h1>
+ * Measures reading the source files of a project, extracting their structure and cleaning their comments.
+ * @author Manios Krasanakis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParsingBenchmark {
+	private ArrayList<String> files;
+	private ArrayList<String> contents = new ArrayList<String>();
+	private ArrayList<String> comments = new ArrayList<String>();
+
+	@Setup
+	public void setup() throws IOException {
+		files = BenchmarkFiles.listFiles(BenchmarkFiles.getProjectPath(), ".java", new ArrayList<String>());
+		for(String file : files) {
+			String content = new ClassObject(file).getContent();
+			contents.add(content);
+			int start = content.indexOf("/**");
+			while(start!=-1) {
+				int end = content.indexOf("*/", start);
+				if(end==-1)
+					break;
+				comments.add(content.substring(start, end+2));
+				start = content.indexOf("/**", end);
+			}
+		}
+	}
+	@Benchmark
+	public void loadClassObjects(Blackhole blackhole) throws IOException {
+		for(String file : files)
+			blackhole.consume(new ClassObject(file));
+	}
+	@Benchmark
+	public void extractStructure(Blackhole blackhole) {
+		for(int i=0;i<files.size();i++)
+			blackhole.consume(new ASTEntityBuilder(new ClassObject(files.get(i), contents.get(i))).extractStructure());
+	}
+	@Benchmark
+	public void cleanComments(Blackhole blackhole) {
+		for(String comment : comments)
+			blackhole.consume(CleanComments.clean(comment));
+	}
+}
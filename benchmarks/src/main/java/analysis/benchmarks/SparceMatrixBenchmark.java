@@ -0,0 +1,64 @@
+package analysis.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import analysis.code.SparceMatrix;
+
+/**
+ * <h1>SparceMatrixBenchmark</h1>
+ * Measures setting and getting the elements of a {@link SparceMatrix} with a fixed number of random elements per row.
+ * @author Manios Krasanakis
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SparceMatrixBenchmark {
+	private static final int ELEMENTS_PER_ROW = 8;
+	@Param({"1000", "100000"})
+	public int size;
+	private int[] rows;
+	private int[] columns;
+	private SparceMatrix matrix;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(1);
+		rows = new int[size*ELEMENTS_PER_ROW];
+		columns = new int[rows.length];
+		for(int i=0;i<rows.length;i++) {
+			rows[i] = random.nextInt(size);
+			columns[i] = random.nextInt(size);
+		}
+		matrix = set();
+	}
+	@Benchmark
+	public SparceMatrix set() {
+		SparceMatrix ret = new SparceMatrix(size);
+		for(int i=0;i<rows.length;i++)
+			ret.set(rows[i], columns[i], 1);
+		return ret;
+	}
+	@Benchmark
+	public double get() {
+		double sum = 0;
+		for(int i=0;i<rows.length;i++)
+			sum += matrix.get(rows[i], (columns[i]+i)%size);
+		return sum;
+	}
+}
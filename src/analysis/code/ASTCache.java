@@ -0,0 +1,239 @@
+package analysis.code;
+
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <h1>ASTCache</h1>
+ * This class stores the {@link ASTEntity} trees of {@link ClassObject} instances on disk, so that they do not need
+ * to be parsed again after restarting. Entries are keyed by a hash of {@link ClassObject#getContent()}, which means
+ * that changed files automatically miss the cache. The cache can be enabled for all classes with {@link ClassObject#setCache(ASTCache)}.<br/>
+ * Entries are written to temporary files that are atomically moved in place, so that the same directory can be used
+ * by multiple processes at the same time. When the cache grows beyond its size limit, the least recently used entries
+ * are removed by a single process at a time.
+ * @author Manios Krasanakis
+ */
+public class ASTCache {
+	private static final int MAGIC = 0x41535443;
+	private static final int VERSION = 2;
+	private static final String EXTENSION = ".ast";
+	private static final byte TEXT = 0;
+	private static final byte SPAN = 1;
+	private static final byte SPAN_METHOD_BODY = 2;
+	private File directory;
+	private long maxBytes;
+	private AtomicLong estimatedBytes = new AtomicLong();
+
+	/**
+	 * Constructor that uses (and creates if needed) a given directory to store cached entries.
+	 * @param directory the cache's directory
+	 * @param maxBytes the maximum total size of cached entries
+	 * @throws IOException if the directory cannot be created
+	 */
+	public ASTCache(String directory, long maxBytes) throws IOException {
+		this.directory = new File(directory);
+		this.maxBytes = maxBytes;
+		Files.createDirectories(this.directory.toPath());
+		estimatedBytes.set(countBytes(listEntries()));
+	}
+	/**
+	 * <h1>load</h1>
+	 * @param classObject a given class
+	 * @return the cached root entity of the class, or null if it is not cached
+	 */
+	public ASTEntity load(ClassObject classObject) {
+		File file = getEntryFile(classObject.getContent());
+		if(!file.isFile())
+			return null;
+		try {
+			//entries are read at once, so that lengths read from them can be checked against the remaining bytes
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath())));
+			if(in.readInt()!=MAGIC || in.readInt()!=VERSION || in.readInt()!=classObject.getContent().length())
+				return null;
+			ASTEntity root = readEntity(in, classObject.getContent());
+			file.setLastModified(System.currentTimeMillis());
+			return root;
+		}
+		catch(IOException | RuntimeException e) {
+			//entries may be removed or be corrupted by other processes, in which case they are considered missing
+			file.delete();
+			return null;
+		}
+	}
+	/**
+	 * <h1>store</h1>
+	 * Stores the root entity of a class and evicts the least recently used entries if the cache becomes too large.
+	 * @param classObject a given class
+	 * @param root the root entity generated for the class
+	 */
+	public void store(ClassObject classObject, ASTEntity root) {
+		File file = getEntryFile(classObject.getContent());
+		Path temporary = null;
+		try {
+			temporary = Files.createTempFile(directory.toPath(), file.getName(), ".tmp");
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(classObject.getContent().length());
+				writeEntity(out, root);
+			}
+			long size = Files.size(temporary);
+			Files.move(temporary, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			temporary = null;
+			if(estimatedBytes.addAndGet(size)>maxBytes)
+				evict();
+		}
+		catch(IOException e) {
+			System.err.println(file+": "+e.toString());
+		}
+		finally {
+			if(temporary!=null)
+				temporary.toFile().delete();
+		}
+	}
+	/**
+	 * <h1>evict</h1>
+	 * Removes the least recently used entries until the cache occupies at most three quarters of its size limit.
+	 * Does nothing if another process is already evicting entries.
+	 */
+	public void evict() {
+		try(RandomAccessFile lockFile = new RandomAccessFile(new File(directory, "cache.lock"), "rw");
+			FileChannel channel = lockFile.getChannel();
+			FileLock lock = channel.tryLock()) {
+			if(lock==null)
+				return;
+			File[] entries = listEntries();
+			long totalBytes = countBytes(entries);
+			long[] lastModified = new long[entries.length];
+			for(int i=0;i<entries.length;i++)
+				lastModified[i] = entries[i].lastModified();
+			Integer[] order = new Integer[entries.length];
+			for(int i=0;i<entries.length;i++)
+				order[i] = i;
+			Arrays.sort(order, Comparator.comparingLong(i -> lastModified[i]));
+			for(int i=0;i<order.length && totalBytes>maxBytes*3/4;i++) {
+				long size = entries[order[i]].length();
+				if(entries[order[i]].delete())
+					totalBytes -= size;
+			}
+			estimatedBytes.set(totalBytes);
+		}
+		catch(OverlappingFileLockException e) {
+			//another thread of this process is evicting entries
+		}
+		catch(IOException e) {
+			System.err.println(directory+": "+e.toString());
+		}
+	}
+	/**
+	 * <h1>clear</h1>
+	 * Removes all cached entries.
+	 */
+	public void clear() {
+		for(File entry : listEntries())
+			entry.delete();
+		estimatedBytes.set(0);
+	}
+	private File[] listEntries() {
+		File[] entries = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+		return entries==null?new File[0]:entries;
+	}
+	private static long countBytes(File[] entries) {
+		long bytes = 0;
+		for(File entry : entries)
+			bytes += entry.length();
+		return bytes;
+	}
+	/**
+	 * <h1>getEntryFile</h1>
+	 * @param content the content of a class
+	 * @return the file named after the SHA-256 hash of the content
+	 */
+	protected File getEntryFile(String content) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+			StringBuilder name = new StringBuilder();
+			for(byte b : hash)
+				name.append(Character.forDigit((b>>4)&0xF, 16)).append(Character.forDigit(b&0xF, 16));
+			return new File(directory, name.append(EXTENSION).toString());
+		}
+		catch(NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	private static void writeEntity(DataOutputStream out, ASTEntity entity) throws IOException {
+		writeString(out, entity.getType());
+		writeString(out, entity.getName());
+		writeString(out, entity.getComments());
+		if(entity.hasImplementationSpan()) {
+			//spans are stored instead of implementations, which are extracted again from the class content
+			out.writeByte(entity.isMethodBody()?SPAN_METHOD_BODY:SPAN);
+			out.writeInt(entity.getImplementationStart());
+			out.writeInt(entity.getImplementationEnd());
+		}
+		else {
+			out.writeByte(TEXT);
+			writeString(out, entity.getImplementation());
+		}
+		out.writeInt(entity.getPositionalId());
+		out.writeInt(entity.getChildren().size());
+		for(Node child : entity.getChildren())
+			writeEntity(out, (ASTEntity)child);
+	}
+	private static ASTEntity readEntity(DataInputStream in, String content) throws IOException {
+		String type = readString(in);
+		String name = readString(in);
+		String comments = readString(in);
+		byte kind = in.readByte();
+		ASTEntity entity;
+		if(kind==TEXT)
+			entity = ASTEntity.restore(type, name, comments, readString(in), in.readInt());
+		else if(kind==SPAN || kind==SPAN_METHOD_BODY) {
+			int implementationStart = in.readInt();
+			int implementationEnd = in.readInt();
+			if(implementationStart<0 || implementationEnd>content.length() || implementationStart>implementationEnd)
+				throw new IOException("Invalid implementation span");
+			entity = ASTEntity.restore(type, name, comments, content, implementationStart, implementationEnd, kind==SPAN_METHOD_BODY, in.readInt());
+		}
+		else
+			throw new IOException("Invalid implementation kind");
+		int children = in.readInt();
+		for(int i=0;i<children;i++) {
+			//children are attached directly, since addChild would process their stored comments again
+			ASTEntity child = readEntity(in, content);
+			child.parent = entity;
+			entity.children.add(child);
+		}
+		return entity;
+	}
+	private static void writeString(DataOutputStream out, String text) throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if(length<0 || length>in.available())
+			throw new IOException("Invalid string length");
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
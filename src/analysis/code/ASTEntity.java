@@ -1,5 +1,9 @@
 package analysis.code;
 
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+
 /**
  * <h1>ASTEntity</h1>
  * This class is used to represent an AST node of high-level code structures (i.e. classes, methods, arguments)
@@ -12,7 +16,14 @@ public class ASTEntity extends Node {
 	private String name;
 	private String comments;
 	private String implementation;
+	private String source;
+	private int implementationStart;
+	private int implementationEnd;
+	private boolean methodBody;
+	private SoftReference<String> cachedImplementation;
 	private int positionalId;
+	private String stackTrace;
+	private volatile HashMap<String, ASTEntity[][]> members;
 
 	/**
 	 * A constructor that assigns the desired parameters for the AST node.
@@ -29,14 +40,91 @@ public class ASTEntity extends Node {
 		this.positionalId = positionalId;
 		updateComments(comments);
 	}
+	/**
+	 * A constructor whose implementation is a view of a span of the source code, so that entities do not need to hold
+	 * their own copies of it. The implementation is only extracted when needed.
+	 * @param type node type (empty string for classes)
+	 * @param name node name (empty string for arguments) 
+	 * @param comments related comments, can also be set with {@link #updateComments(String)}
+	 * @param source the source code text
+	 * @param implementationStart the position at which the implementation starts in the source code
+	 * @param implementationEnd the position after which the implementation ends in the source code
+	 * @param methodBody whether the span is a method declaration, whose implementation is its normalized body
+	 * 	as obtained by {@link ASTEntityBuilder#extractMethodBody(String)}
+	 * @param positionalId position in the source code text
+	 */
+	ASTEntity(String type, String name, String comments, String source, int implementationStart, int implementationEnd, boolean methodBody, int positionalId) {
+		this.name = name;
+		this.type = type.trim();
+		this.source = source;
+		this.implementationStart = implementationStart;
+		this.implementationEnd = implementationEnd;
+		this.methodBody = methodBody;
+		this.positionalId = positionalId;
+		updateComments(comments);
+	}
 	protected ASTEntity() {
 	}
+	/**
+	 * <h1>restore</h1>
+	 * Creates an entity from previously stored values, without processing its comments again.
+	 * @return an entity without parent or children
+	 * @see ASTCache
+	 */
+	static ASTEntity restore(String type, String name, String comments, String implementation, int positionalId) {
+		ASTEntity ret = new ASTEntity();
+		ret.type = type;
+		ret.name = name;
+		ret.comments = comments;
+		ret.implementation = implementation;
+		ret.positionalId = positionalId;
+		return ret;
+	}
+	/**
+	 * <h1>restore</h1>
+	 * Creates an entity from previously stored values, without processing its comments again.
+	 * @return an entity without parent or children, whose implementation is a span of the given source
+	 * @see ASTCache
+	 */
+	static ASTEntity restore(String type, String name, String comments, String source, int implementationStart, int implementationEnd, boolean methodBody, int positionalId) {
+		ASTEntity ret = restore(type, name, comments, null, positionalId);
+		ret.source = source;
+		ret.implementationStart = implementationStart;
+		ret.implementationEnd = implementationEnd;
+		ret.methodBody = methodBody;
+		return ret;
+	}
+	/**
+	 * <h1>hasImplementationSpan</h1>
+	 * @return whether the implementation is a view of a span of the source code
+	 */
+	boolean hasImplementationSpan() {
+		return implementation==null && source!=null;
+	}
+	int getImplementationStart() {
+		return implementationStart;
+	}
+	int getImplementationEnd() {
+		return implementationEnd;
+	}
+	boolean isMethodBody() {
+		return methodBody;
+	}
 	/**
 	 * <h1>getImplementation</h1>
 	 * @return the source code implementation (if available) for this entity
 	 */
 	public String getImplementation() {
-		return implementation;
+		if(implementation!=null || source==null)
+			return implementation;
+		String ret = cachedImplementation==null?null:cachedImplementation.get();
+		if(ret==null) {
+			ret = source.substring(implementationStart, implementationEnd);
+			if(methodBody)
+				ret = ASTEntityBuilder.extractMethodBody(ret);
+			cachedImplementation = new SoftReference<String>(ret);
+		}
+		return ret;
 	}
 	/**
 	 * <h1>getPositionalId</h1>
@@ -100,6 +188,10 @@ public class ASTEntity extends Node {
 		ret.parent = null;
 		ret.positionalId = positionalId;
 		ret.implementation = implementation;
+		ret.source = source;
+		ret.implementationStart = implementationStart;
+		ret.implementationEnd = implementationEnd;
+		ret.methodBody = methodBody;
 		try{
 			for(Node child : children)
 				ret.addChild(child.copyWithoutComments());
@@ -111,20 +203,106 @@ public class ASTEntity extends Node {
 	}
 	/**
 	 * <h1>getStrackTrace</h1>
-	 * Implementation is iterative.
+	 * Implementation is iterative. The result is cached until children are added to or removed from the entity or its parents.
 	 * @return a unique representation of this entity's position within its parents.
 	 */
 	public String getStackTrace() {
-		String args = "";
-		if(isMethod()) {
-			for(Node child : children) {
-				if(!args.isEmpty())
-					args += ", ";
-				args += child.getType();
+		String ret = stackTrace;
+		if(ret==null) {
+			StringBuilder builder = new StringBuilder();
+			if(parent!=null)
+				builder.append(parent.getStackTrace()).append('.');
+			builder.append(getName());
+			if(isMethod()) {
+				builder.append('(');
+				for(int i=0;i<children.size();i++) {
+					if(i!=0)
+						builder.append(", ");
+					builder.append(children.get(i).getType());
+				}
+				builder.append(')');
 			}
-			args = "("+args+")";
+			stackTrace = ret = builder.toString();
+		}
+		return ret;
+	}
+	@Override
+	protected boolean clearCache() {
+		boolean cached = super.clearCache() || stackTrace!=null;
+		stackTrace = null;
+		return cached;
+	}
+	@Override
+	protected void childrenChanged() {
+		members = null;
+	}
+	/**
+	 * <h1>getMembers</h1>
+	 * Finds overloaded members (i.e. methods, constructors or nested classes) in constant time. The index of
+	 * members is built the first time it is needed and is kept until children are added to or removed from the
+	 * entity or its children.
+	 * @param name the name of the members
+	 * @param arity the number of children (i.e. arguments) of the members
+	 * @return the children of this entity with the given name and number of children in their order, or null if there are none
+	 * @see #getMember(String, int)
+	 */
+	public ASTEntity[] getMembers(String name, int arity) {
+		HashMap<String, ASTEntity[][]> index = members;
+		if(index==null)
+			members = index = createMemberIndex();
+		ASTEntity[][] overloads = index.get(name);
+		if(overloads==null || arity<0 || arity>=overloads.length)
+			return null;
+		return overloads[arity];
+	}
+	/**
+	 * <h1>getMember</h1>
+	 * @param name the name of the member
+	 * @param arity the number of children (i.e. arguments) of the member
+	 * @return the last child of this entity with the given name and number of children, or null if there is none
+	 * @see #getMembers(String, int)
+	 */
+	public ASTEntity getMember(String name, int arity) {
+		ASTEntity[] overloads = getMembers(name, arity);
+		return overloads==null?null:overloads[overloads.length-1];
+	}
+	private HashMap<String, ASTEntity[][]> createMemberIndex() {
+		HashMap<String, ArrayList<ArrayList<ASTEntity>>> overloads = new HashMap<String, ArrayList<ArrayList<ASTEntity>>>();
+		for(Node child : children) {
+			ArrayList<ArrayList<ASTEntity>> byArity = overloads.get(child.getName());
+			if(byArity==null)
+				overloads.put(child.getName(), byArity = new ArrayList<ArrayList<ASTEntity>>());
+			int arity = child.getChildren().size();
+			while(byArity.size()<=arity)
+				byArity.add(null);
+			if(byArity.get(arity)==null)
+				byArity.set(arity, new ArrayList<ASTEntity>());
+			byArity.get(arity).add((ASTEntity)child);
+		}
+		HashMap<String, ASTEntity[][]> index = new HashMap<String, ASTEntity[][]>();
+		for(String name : overloads.keySet()) {
+			ArrayList<ArrayList<ASTEntity>> byArity = overloads.get(name);
+			ASTEntity[][] entities = new ASTEntity[byArity.size()][];
+			for(int arity=0;arity<entities.length;arity++)
+				if(byArity.get(arity)!=null)
+					entities[arity] = byArity.get(arity).toArray(new ASTEntity[byArity.get(arity).size()]);
+			index.put(name, entities);
 		}
-		return (parent!=null?parent.getStackTrace()+".":"")+getName()+args;
+		return index;
+	}
+	/**
+	 * <h1>preorderClasses</h1>
+	 * @return an iterable of the classes among this entity and its descendants, in the same order as {@link #collapse()}
+	 */
+	public Iterable<ASTEntity> preorderClasses() {
+		return preorder(node -> ((ASTEntity)node).isClass());
+	}
+	/**
+	 * <h1>preorderMethods</h1>
+	 * @return an iterable of the methods among this entity and its descendants, in the same order as {@link #collapse()}
+	 */
+	public Iterable<ASTEntity> preorderMethods() {
+		return preorder(node -> ((ASTEntity)node).isMethod());
 	}
 	/**
 	 * <h1>isArgument</h1>
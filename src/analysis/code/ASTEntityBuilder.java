@@ -4,7 +4,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
 
+import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTParser;
@@ -31,6 +34,10 @@ public class ASTEntityBuilder {//don't serialize AST information
 	private ClassObject targetObject;
 	private ASTNode node;
 	private HashMap<ASTEntity, ASTNode> entityNodes = new HashMap<ASTEntity, ASTNode>();
+	private static final Pattern TYPE_PARAMETERS = Pattern.compile("(\\<.*\\>)");
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+	private static final ThreadLocal<ASTParser> parsers = new ThreadLocal<ASTParser>();
+	private static Map<?, ?> compilerOptions = null;
 	
 	public ASTEntityBuilder(ClassObject object) {
 		targetObject = object;
@@ -65,10 +72,11 @@ public class ASTEntityBuilder {//don't serialize AST information
 	protected void generateAST() {
 		// GENERATE AST
 		entityNodes.clear();
-		ASTParser parser = ASTParser.newParser(AST.JLS3);
+		ASTParser parser = getParser();
 		parser.setKind(ASTParser.K_COMPILATION_UNIT);
 		parser.setResolveBindings(false); 
-		parser.setSource(targetObject.getContent().toCharArray());
+		parser.setCompilerOptions(getCompilerOptions());
+		parser.setSource(targetObject.takeCharacters());
 		node = (ASTNode) parser.createAST(null);
 		ASTEntity documentRootEntity = new ASTEntity("","","","",-1);
 		createChildNodes(documentRootEntity, node);
@@ -80,6 +88,29 @@ public class ASTEntityBuilder {//don't serialize AST information
 		documentRootEntity.removeChild(rootEntity);
 	}
 	
+	/**
+	 * <h1>getParser</h1>
+	 * Parsers are reset after creating each AST, so each thread reuses the same parser for all files it parses
+	 * instead of creating a new one. This way, importing projects with many files (e.g. with a pool of threads
+	 * through {@link ASTProject#importPath(String, int)}) only creates one parser per thread.
+	 * @return the parser of the current thread
+	 */
+	private static ASTParser getParser() {
+		ASTParser parser = parsers.get();
+		if(parser==null)
+			parsers.set(parser = ASTParser.newParser(AST.JLS3));
+		return parser;
+	}
+	/**
+	 * <h1>getCompilerOptions</h1>
+	 * @return the default compiler options, which are obtained only once and are shared by all parsers
+	 */
+	private static synchronized Map<?, ?> getCompilerOptions() {
+		if(compilerOptions==null)
+			compilerOptions = JavaCore.getOptions();
+		return compilerOptions;
+	}
+	
 	protected void createChildNodes(ASTEntity parent, ASTNode node) {
 		ArrayList<ASTNode> children = getNodeChildren(node);
 		for(ASTNode child : children) {
@@ -102,15 +133,14 @@ public class ASTEntityBuilder {//don't serialize AST information
 		if(node instanceof AbstractTypeDeclaration) {
 			int startPosition = ((AbstractTypeDeclaration) node).getStartPosition();
 			int endPosition = startPosition + ((AbstractTypeDeclaration) node).getLength();
-			String implementation = targetObject.getContent().substring(startPosition, endPosition);
-			entity = new ASTEntity("",  ((AbstractTypeDeclaration) node).getName().toString(), "", implementation, startPosition);
+			entity = new ASTEntity("",  ((AbstractTypeDeclaration) node).getName().toString(), "", targetObject.getContent(), startPosition, endPosition, false, startPosition);
 		}
 		else if(node instanceof MethodDeclaration) {
 			int startPosition = ((MethodDeclaration) node).getStartPosition();
 			int endPosition = startPosition + ((MethodDeclaration) node).getLength();
 			String name = ((MethodDeclaration) node).getName().toString();
 			String implementation = targetObject.getContent().substring(startPosition, endPosition);
-			String unparemetrizedImplementation = CodeManipulation.removeComments(implementation).replaceAll("(\\<.*\\>)", "").replaceAll("\n", " ").replaceAll("\\s+", " ");
+			String unparemetrizedImplementation = normalizeMethod(implementation);
 			int typeDeclarationEnd = unparemetrizedImplementation.indexOf(" "+name);
 			String returnType = typeDeclarationEnd==-1?"constructor":unparemetrizedImplementation.substring(0,typeDeclarationEnd);
 			String[] returnTypes = returnType.split("\\s+");
@@ -119,11 +149,9 @@ public class ASTEntityBuilder {//don't serialize AST information
 				returnType = "constructor";
 			if(implementation.contains("<"+returnType+">"))
 				returnType = "Variable";
-			int bodyStart = unparemetrizedImplementation.indexOf("{");
-			while(bodyStart!=-1  && unparemetrizedImplementation.substring(bodyStart).startsWith("{@"))
-				bodyStart = unparemetrizedImplementation.indexOf("{", bodyStart+1);
-			String bodyImplementation = bodyStart==-1?"":unparemetrizedImplementation.substring(bodyStart);
-			entity = new ASTEntity(returnType, name, "", bodyImplementation, startPosition);
+			int bodyStart = findMethodBodyStart(unparemetrizedImplementation);
+			//the body is extracted again from the source when needed, instead of being kept in memory
+			entity = new ASTEntity(returnType, name, "", targetObject.getContent(), startPosition, endPosition, true, startPosition);
 			{
 				//add argument to structure
 				String argumentDeclaration = bodyStart==-1?unparemetrizedImplementation:unparemetrizedImplementation.substring(0,bodyStart);
@@ -199,6 +227,39 @@ public class ASTEntityBuilder {//don't serialize AST information
 		return entity;
 	}
 	
+	/**
+	 * <h1>normalizeMethod</h1>
+	 * @param implementation the source code of a method declaration
+	 * @return the declaration without comments and type parameters, in which whitespaces are replaced by single spaces
+	 */
+	static String normalizeMethod(String implementation) {
+		String ret = CodeManipulation.removeComments(implementation);
+		ret = TYPE_PARAMETERS.matcher(ret).replaceAll("");
+		return WHITESPACE.matcher(ret).replaceAll(" ");
+	}
+	/**
+	 * <h1>findMethodBodyStart</h1>
+	 * @param normalizedImplementation a method declaration normalized by {@link #normalizeMethod(String)}
+	 * @return the position of the opening bracket of the method's body (ignoring javadoc tags), or -1 if it has no body
+	 */
+	static int findMethodBodyStart(String normalizedImplementation) {
+		int bodyStart = normalizedImplementation.indexOf("{");
+		while(bodyStart!=-1  && normalizedImplementation.startsWith("{@", bodyStart))
+			bodyStart = normalizedImplementation.indexOf("{", bodyStart+1);
+		return bodyStart;
+	}
+	/**
+	 * <h1>extractMethodBody</h1>
+	 * @param implementation the source code of a method declaration
+	 * @return the normalized body of the method, which is used as the implementation of method entities
+	 * @see #normalizeMethod(String)
+	 */
+	static String extractMethodBody(String implementation) {
+		String unparemetrizedImplementation = normalizeMethod(implementation);
+		int bodyStart = findMethodBodyStart(unparemetrizedImplementation);
+		return bodyStart==-1?"":unparemetrizedImplementation.substring(bodyStart);
+	}
+	
 	@Override
 	public String toString() {
 		return rootEntity.toString();
@@ -266,8 +327,10 @@ public class ASTEntityBuilder {//don't serialize AST information
 	 */
 	public String getAllComments() {
 		StringBuilder comments = new StringBuilder();
-		for(Node entity : extractStructure().collapse())
+		extractStructure().traverse(entity -> {
 			comments.append(entity.getComments()).append("\n");
+			return true;
+		});
 		return comments.toString();
 	}
 }
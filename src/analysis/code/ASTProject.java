@@ -3,8 +3,15 @@ package analysis.code;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * <h1>ASTProject</h1>
@@ -17,6 +24,12 @@ public class ASTProject {
 	private HashMap<String, ASTEntity> projectClasses = new HashMap<String, ASTEntity>();
 	private ArrayList<ASTEntity> allMethods = new ArrayList<ASTEntity>();
 	private HashMap<ASTEntity, Integer> allMethodsIds = new  HashMap<ASTEntity, Integer>();
+	private HashMap<String, ClassObject> importedFiles = new HashMap<String, ClassObject>();
+	private CallCache callCache = new CallCache();
+	private HashSet<String> classLookups = null;
+	private SymbolIndex methodIndex = null;
+	private ArrayList<ASTEntity> indexedClasses = null;
+	private SymbolIndex classIndex = null;
 	private String path;
 	
 	public ASTProject(String projectPath) {
@@ -24,6 +37,17 @@ public class ASTProject {
 		importPath(projectPath);
 		updateProject();
 	}
+	/**
+	 * Constructor that imports the project using multiple threads.
+	 * @param projectPath the project's directory
+	 * @param parallelism the number of threads used to read and parse files
+	 * @see #importPath(String, int)
+	 */
+	public ASTProject(String projectPath, int parallelism) {
+		path=projectPath;
+		importPath(projectPath, parallelism);
+		updateProject();
+	}
 	public String getPath() {
 		return path;
 	}
@@ -46,26 +70,106 @@ public class ASTProject {
 	public void updateProject() {
 		allMethodsIds.clear();
 		allMethods.clear();
+		callCache.clear();
+		methodIndex = null;
+		classIndex = null;
 		for(ASTEntity projectClass : projectClasses.values()) {
-			for(Node method : projectClass.collapse()) 
-			if(((ASTEntity)method).isMethod() && !allMethodsIds.containsKey((ASTEntity)method)){  //tropopoiisi sunthikis
+			for(ASTEntity method : projectClass.preorderMethods()) 
+			if(!allMethodsIds.containsKey(method)){  //tropopoiisi sunthikis
 				
-				allMethodsIds.put((ASTEntity)method, allMethods.size());
-				allMethods.add((ASTEntity)method);
-			}else if(((ASTEntity)method).isMethod()) {
-//				System.out.println("SOS: "+((ASTEntity)method)+" / "+allMethodsIds.get(((ASTEntity)method)));
+				allMethodsIds.put(method, allMethods.size());
+				allMethods.add(method);
 			}
 		}
 //		System.out.println("All Methods Ids SIZE: "+allMethodsIds.size());
 //		System.out.println("All Methods SIZE: "+allMethods.size());
+		getMethodIndex();
+		getClassIndex();
 	}
-	
-	public ASTEntity searchForMethod(String methodName) {
-		for(ASTEntity method : allMethods) {
-			if(method.getStackTrace().contains(methodName))
-				return method;
+	/**
+	 * <h1>getMethodIndex</h1>
+	 * The index is built by {@link #updateProject()} and is lazily built again after {@link #replaceClassObject(ClassObject, ClassObject)}.
+	 * @return an index of the stack traces of all project methods, whose ids are the same as in {@link #getAllMethods()}
+	 */
+	public SymbolIndex getMethodIndex() {
+		if(methodIndex==null) {
+			ArrayList<String> names = new ArrayList<String>(allMethods.size());
+			for(ASTEntity method : allMethods)
+				names.add(method.getStackTrace());
+			methodIndex = new SymbolIndex(names);
 		}
-		return null;
+		return methodIndex;
+	}
+	/**
+	 * <h1>getClassIndex</h1>
+	 * The index is built by {@link #updateProject()} and is lazily built again after {@link #replaceClassObject(ClassObject, ClassObject)}.
+	 * @return an index of the names of all project classes, whose ids are positions in {@link #getIndexedClasses()}
+	 */
+	public SymbolIndex getClassIndex() {
+		if(classIndex==null) {
+			indexedClasses = new ArrayList<ASTEntity>(projectClasses.values());
+			ArrayList<String> names = new ArrayList<String>(indexedClasses.size());
+			for(ASTEntity projectClass : indexedClasses)
+				names.add(projectClass.getStackTrace());
+			classIndex = new SymbolIndex(names);
+		}
+		return classIndex;
+	}
+	/**
+	 * <h1>getIndexedClasses</h1>
+	 * @return the project classes in the order of their ids in {@link #getClassIndex()}
+	 */
+	public ArrayList<ASTEntity> getIndexedClasses() {
+		getClassIndex();
+		return indexedClasses;
+	}
+	/**
+	 * <h1>searchForMethod</h1>
+	 * @param methodName a part of a method's stack trace
+	 * @return the first project method (in the order of {@link #getAllMethods()}) whose stack trace contains the given text, or null if there is none
+	 * @see #searchForMethods(String)
+	 */
+	public ASTEntity searchForMethod(String methodName) {
+		int id = getMethodIndex().findFirstSubstring(methodName);
+		return id==-1?null:allMethods.get(id);
+	}
+	/**
+	 * <h1>searchForMethods</h1>
+	 * @param methodName a part of a method's stack trace
+	 * @return all project methods whose stack trace contains the given text, in the order of {@link #getAllMethods()}
+	 */
+	public ArrayList<ASTEntity> searchForMethods(String methodName) {
+		return getEntities(getMethodIndex().findSubstring(methodName), allMethods);
+	}
+	/**
+	 * <h1>searchForMethodsEndingWith</h1>
+	 * @param suffix the ending of a method's stack trace, such as <code>"Class.method(int)"</code>
+	 * @return all project methods whose stack trace ends with the given text, in the order of {@link #getAllMethods()}
+	 */
+	public ArrayList<ASTEntity> searchForMethodsEndingWith(String suffix) {
+		return getEntities(getMethodIndex().findSuffix(suffix), allMethods);
+	}
+	/**
+	 * <h1>getMethodsByStackTrace</h1>
+	 * @param stackTrace the full stack trace of a method
+	 * @return all project methods with the given stack trace, in the order of {@link #getAllMethods()}
+	 */
+	public ArrayList<ASTEntity> getMethodsByStackTrace(String stackTrace) {
+		return getEntities(getMethodIndex().findExact(stackTrace), allMethods);
+	}
+	/**
+	 * <h1>searchForClasses</h1>
+	 * @param className a part of a class's stack trace
+	 * @return all project classes whose stack trace contains the given text
+	 */
+	public ArrayList<ASTEntity> searchForClasses(String className) {
+		return getEntities(getClassIndex().findSubstring(className), indexedClasses);
+	}
+	private static ArrayList<ASTEntity> getEntities(int[] ids, ArrayList<ASTEntity> entities) {
+		ArrayList<ASTEntity> ret = new ArrayList<ASTEntity>(ids.length);
+		for(int id : ids)
+			ret.add(entities.get(id));
+		return ret;
 	}
 	/**
 	 * <h1>generateTraversalMatrix</h1>
@@ -73,16 +177,112 @@ public class ASTProject {
 	 * @return a traversal matrix between all methods in the project
 	 */
 	public double[][] generateTraversalMatrix() {
-		int N = allMethods.size(); 
-		double[][] M = new double[N][N];
+		return generateCallGraph().toDense();
+	}
+	/**
+	 * <h1>generateCallGraph</h1>
+	 * Uses {@link #getCalledMethodsBy} to generate a sparse call graph between all methods in the project.
+	 * Method ids and self-calls are the same as in {@link #generateTraversalMatrix()}, but memory only grows with the number of calls.
+	 * @return a call graph between all methods in the project
+	 * @see #getIndexInTraversalMatrix(ASTEntity)
+	 */
+	public CallGraph generateCallGraph() {
+		int N = allMethods.size();
+		int[] rowOffsets = new int[N+1];
+		int[] columnIndices = new int[Math.max(16, N)];
+		int nnz = 0;
 		for(int i=0;i<N;i++) {
-			M[i][i] = 1;
-			for(ASTEntity entity : getCalledMethodsBy(allMethods.get(i)))
-				if(entity.isMethod() && allMethods.contains(entity)) {
-					M[i][allMethodsIds.get(entity)] = 1;
-				}
+			int[] row = getCallRow(i);
+			if(nnz+row.length>columnIndices.length)
+				columnIndices = Arrays.copyOf(columnIndices, Math.max(2*columnIndices.length, nnz+row.length));
+			System.arraycopy(row, 0, columnIndices, nnz, row.length);
+			nnz += row.length;
+			rowOffsets[i+1] = nnz;
+		}
+		return new CallGraph(N, rowOffsets, columnIndices);
+	}
+	/**
+	 * <h1>streamCalls</h1>
+	 * Passes the same edges as {@link #generateCallGraph()} to a consumer, ordered by caller and then by callee.
+	 * The calls of each method are passed as soon as they are identified, so that the consumer can start processing
+	 * edges before all methods are visited, while the graph itself is never stored. Calls that are already cached
+	 * are reused, but newly identified calls are not added to the cache, so that memory does not grow with the number of calls.
+	 * @param consumer the consumer of <code>(caller, callee)</code> ids
+	 * @see #getIndexInTraversalMatrix(ASTEntity)
+	 */
+	public void streamCalls(CallEdgeConsumer consumer) {
+		int N = allMethods.size();
+		for(int i=0;i<N;i++) {
+			ASTEntity method = allMethods.get(i);
+			ASTEntity[] calls = callCache.get(method);
+			if(calls==null) {
+				ArrayList<ASTEntity> called = getCalledMethodsBy(method);
+				calls = called.toArray(new ASTEntity[called.size()]);
+			}
+			for(int callee : getCallRow(i, calls))
+				consumer.accept(i, callee);
+		}
+	}
+	/**
+	 * <h1>getCallRow</h1>
+	 * @param i the id of a project method
+	 * @return the sorted ids of the method itself and the project methods it calls
+	 */
+	private int[] getCallRow(int i) {
+		return getCallRow(i, getCachedCalls(allMethods.get(i)));
+	}
+	/**
+	 * <h1>getCallRow</h1>
+	 * @param i the id of a project method
+	 * @param calls the methods called by the project method
+	 * @return the sorted ids of the method itself and the given methods that belong to the project
+	 */
+	private int[] getCallRow(int i, ASTEntity[] calls) {
+		int[] row = new int[calls.length+1];
+		int rowSize = 0;
+		row[rowSize++] = i;
+		for(ASTEntity entity : calls) {
+			Integer id = allMethodsIds.get(entity);
+			if(id!=null)
+				row[rowSize++] = id;
+		}
+		Arrays.sort(row, 0, rowSize);
+		int uniqueSize = 0;
+		for(int k=0;k<rowSize;k++)
+			if(uniqueSize==0 || row[uniqueSize-1]!=row[k])
+				row[uniqueSize++] = row[k];
+		return uniqueSize==row.length?row:Arrays.copyOf(row, uniqueSize);
+	}
+	/**
+	 * <h1>getCachedCalls</h1>
+	 * Calls are cached until {@link #updateProject} is called or until classes they depend on are changed
+	 * with {@link #replaceClassObject(ClassObject, ClassObject)}.
+	 * @param method a project method
+	 * @return the methods called by the given method, as identified by {@link #getCalledMethodsBy}
+	 */
+	private ASTEntity[] getCachedCalls(ASTEntity method) {
+		ASTEntity[] calls = callCache.get(method);
+		if(calls==null) {
+			HashSet<String> lookups = classLookups = new HashSet<String>();
+			try {
+				calls = callCache.put(method, getCalledMethodsBy(method), lookups);
+			}
+			finally {
+				classLookups = null;
+			}
 		}
-		return M;
+		return calls;
+	}
+	/**
+	 * <h1>getProjectClass</h1>
+	 * Used by call resolution to look up project classes, so that the names looked up can be tracked.
+	 * @param name a class name
+	 * @return the project class with the given name, or null if no such class exists
+	 */
+	private ASTEntity getProjectClass(String name) {
+		if(classLookups!=null)
+			classLookups.add(name);
+		return projectClasses.get(name);
 	}
 	public ASTEntity getMethodByIndexInTraversalMatrix(int i) {
 		return allMethods.get(i);
@@ -113,8 +313,8 @@ public class ASTProject {
 					String variableName = variableType[variableType.length-1];
 					//handle hashmaps, lists, etc by selecting the first known variable reference
 					for(int i=0;i<variableType.length-1;i++) {
-						if(projectClasses.get(variableType[i])!=null) {
-							variableClasses.put(variableName, projectClasses.get(variableType[i]));
+						if(getProjectClass(variableType[i])!=null) {
+							variableClasses.put(variableName, getProjectClass(variableType[i]));
 							break;
 						}
 					}
@@ -123,51 +323,59 @@ public class ASTProject {
 		}
 
 		ArrayList<ASTEntity> ret = new ArrayList<ASTEntity>();
-		for(String statement : CodeManipulation.splitToStatements(method.getImplementation().trim(), 1))
-			for(ASTEntity statementCall : getStatementCalls(statement, variableClasses, (ASTEntity)method.getParent(), (ASTEntity)method.getParent()))
+		ArrayList<ASTEntity> statementCalls = new ArrayList<ASTEntity>();
+		for(String statement : CodeManipulation.splitToStatements(method.getImplementation().trim(), 1)) {
+			statementCalls.clear();
+			getStatementCalls(new StatementTree(statement), 0, statement.length(), variableClasses, (ASTEntity)method.getParent(), (ASTEntity)method.getParent(), statementCalls);
+			for(ASTEntity statementCall : statementCalls)
 				if(!ret.contains(statementCall))
 					ret.add(statementCall);
+		}
 		return ret;
 	}
 	/**
 	 * <h1>getStatementCalls</h1>
 	 * Identifies variable types, which are then added to the given map of variable classes. 
 	 * Calls {@link #recognizeKnownEntity} to identify method calls, as well as method and operator arguments.
-	 * @param statement the given statement
+	 * @param statement the given parsed statement
+	 * @param start the start of the part of the statement to handle
+	 * @param end the end of the part of the statement to handle (exclusive)
 	 * @param variableClasses a map that maps variables to their closest {@link ASTEntity} defined in the project
 	 * @param parentEntity
 	 * @param defaultParentEntity
-	 * @return a list of identified {@link ASTEntity} instances from the project used by the given statement
-	 * @see #recognizeKnownEntity(String, ASTEntity, HashMap, ASTEntity)
+	 * @param calls a list to which identified {@link ASTEntity} instances from the project used by the given part are added
+	 * @see #recognizeKnownEntity(StatementTree, int, int, ASTEntity, HashMap, ASTEntity, ArrayList)
 	 */
-	private ArrayList<ASTEntity> getStatementCalls(String statement, HashMap<String, ASTEntity> variableClasses, ASTEntity parentEntity, ASTEntity defaultParentEntity) {
-		statement = statement.trim();
-		ArrayList<ASTEntity> calls = new ArrayList<ASTEntity>();
-		//System.out.println("--->"+statement);
+	private void getStatementCalls(StatementTree statement, int start, int end, HashMap<String, ASTEntity> variableClasses, ASTEntity parentEntity, ASTEntity defaultParentEntity, ArrayList<ASTEntity> calls) {
+		String text = statement.getText();
+		start = statement.trimStart(start, end);
+		end = statement.trimEnd(start, end);
 		
-		int pos = 0;
-		while(pos<statement.length()) {
-			int idxEquals = CodeManipulation.topLevelIndexOf(statement, '=', pos);
+		int pos = start;
+		while(pos<end) {
+			int idxEquals = statement.indexOf(StatementTree.ASSIGN, pos, end);
 			if(idxEquals==-1) {
-				idxEquals = CodeManipulation.topLevelIndexOf(statement, ':', pos);
-				int posQ = CodeManipulation.topLevelIndexOf(statement, '?', pos);
+				idxEquals = statement.indexOf(StatementTree.COLON, pos, end);
+				int posQ = statement.indexOf(StatementTree.QUESTION, pos, end);
 				if(posQ!=-1 && posQ<idxEquals)
 					idxEquals = -1;
 			}
-			if(idxEquals>0 && statement.charAt(idxEquals-1)=='!')
+			if(idxEquals>start && text.charAt(idxEquals-1)=='!')
 				idxEquals = -1;
-			if(idxEquals<statement.length()-1 && idxEquals<statement.length()-1 && statement.charAt(idxEquals+1)=='=')
+			if(idxEquals!=-1 && idxEquals<end-1 && text.charAt(idxEquals+1)=='=')
 				idxEquals = -1;
 			if(idxEquals!=-1) {
-				String LHStext = statement.substring(0, idxEquals).trim();
-				ArrayList<ASTEntity> RHSCalls = getStatementCalls(statement.substring(idxEquals+1), variableClasses, parentEntity, defaultParentEntity);
-				calls.addAll(getStatementCalls(LHStext, variableClasses, parentEntity, defaultParentEntity));
+				int LHSend = statement.trimEnd(start, idxEquals);
+				String LHStext = text.substring(start, LHSend);
+				ArrayList<ASTEntity> RHSCalls = new ArrayList<ASTEntity>();
+				getStatementCalls(statement, idxEquals+1, end, variableClasses, parentEntity, defaultParentEntity, RHSCalls);
+				getStatementCalls(statement, start, LHSend, variableClasses, parentEntity, defaultParentEntity, calls);
 				calls.addAll(RHSCalls);
 				String variableName = LHStext.substring(LHStext.lastIndexOf(' ')+1);
 				if(RHSCalls.size()>=1)  {
 					String variableType = RHSCalls.get(RHSCalls.size()-1).getType();
-					if(projectClasses.get(variableType)!=null)
-						variableClasses.put(variableName, projectClasses.get(variableType));
+					if(getProjectClass(variableType)!=null)
+						variableClasses.put(variableName, getProjectClass(variableType));
 				}
 				if(variableClasses.get(variableName)==null) {
 					String[] variableType = LHStext.split("(\\s|\\<|\\>|\\,)+");
@@ -175,8 +383,8 @@ public class ASTProject {
 						variableName = variableType[variableType.length-1];
 						//handle hashmaps, lists, etc by selecting the first known variable reference
 						for(int i=0;i<variableType.length-1;i++) {
-							if(projectClasses.get(variableType[i])!=null) {
-								variableClasses.put(variableName, projectClasses.get(variableType[i]));
+							if(getProjectClass(variableType[i])!=null) {
+								variableClasses.put(variableName, getProjectClass(variableType[i]));
 								break;
 							}
 						}
@@ -185,186 +393,102 @@ public class ASTProject {
 				pos = idxEquals+1;
 			}
 			else {
-				String entityText = statement.substring(pos);
-				ArrayList<ASTEntity> found = recognizeKnownEntity(entityText, parentEntity, variableClasses, defaultParentEntity);
-				if(!found.isEmpty())
-					parentEntity = found.get(found.size()-1);
-				calls.addAll(found);
+				recognizeKnownEntity(statement, pos, end, parentEntity, variableClasses, defaultParentEntity, calls);
 				break;
 			}
 		}
-		
-		return calls;
 	}
 	/**
 	 * <h1>recognizeKnownEntity</h1>
 	 * Identified method calls, as well as method and operator arguments. In turn calls {@link #getStatementCalls} to handle sub-structures,
 	 * such as arguments.
-	 * @param callText
+	 * @param statement the given parsed statement
+	 * @param start the start of the call text within the statement
+	 * @param end the end of the call text within the statement (exclusive)
 	 * @param parentEntity
 	 * @param variableClasses
 	 * @param defaultParentEntity
-	 * @return a list of identified {@link ASTEntity} instances from the project used by the given statement
-	 * @see #getStatementCalls(String, HashMap, ASTEntity, ASTEntity)
+	 * @param ret a list to which identified {@link ASTEntity} instances from the project used by the call text are added
+	 * @see #getStatementCalls(StatementTree, int, int, HashMap, ASTEntity, ASTEntity, ArrayList)
 	 */
-	private ArrayList<ASTEntity> recognizeKnownEntity(String callText, ASTEntity parentEntity,  HashMap<String, ASTEntity> variableClasses, ASTEntity defaultParentEntity) {
-		ArrayList<ASTEntity> ret = new ArrayList<ASTEntity>();
-		callText = callText.trim();
-		//while(callText.startsWith("(") && callText.endsWith(")")) 
-			//callText = callText.substring(1, callText.length()-1).trim();
-		if(!callText.contains(")")) {//static class references
-			if(projectClasses.get(callText)!=null)
-				ret.add(projectClasses.get(callText));
+	private void recognizeKnownEntity(StatementTree statement, int start, int end, ASTEntity parentEntity,  HashMap<String, ASTEntity> variableClasses, ASTEntity defaultParentEntity, ArrayList<ASTEntity> ret) {
+		String text = statement.getText();
+		start = statement.trimStart(start, end);
+		end = statement.trimEnd(start, end);
+		if(!statement.containsClosing(start, end)) {//static class references
+			ASTEntity projectClass = getProjectClass(text.substring(start, end));
+			if(projectClass!=null)
+				ret.add(projectClass);
 		}
-		else if(callText.startsWith("new ")) {//constructors
-			int idx = callText.indexOf("(");
-			int nArgs = CodeManipulation.topLevelCountOf(callText, ',', idx+1)+1;
-			int last = CodeManipulation.topLevelIndexOf(callText,')', idx+1);
-			if(idx<0 || last>=callText.length()-1 || last<0|| callText.substring(idx+1, last).trim().isEmpty())
+		else if(end-start>=4 && text.startsWith("new ", start)) {//constructors
+			int idx = statement.indexOfAnyOpening(start, end);
+			int argsStart = idx<0?start:idx+1;
+			int nArgs = statement.countOf(StatementTree.COMMA, argsStart, end)+1;
+			int last = statement.indexOf(StatementTree.CLOSING, argsStart, end);
+			if(idx<0 || last>=end-1 || last<0|| statement.isBlank(idx+1, last))
 				nArgs = 0;
-			String className = callText.substring(4, idx).trim();
-			parentEntity = projectClasses.get(className);
+			String className = text.substring(start+4, idx).trim();
+			parentEntity = getProjectClass(className);
 			ASTEntity foundConstructor = null;
 			if(parentEntity!=null)
-				for(Node entity : parentEntity.getChildren())
-					if(entity.getName().equals(className) && entity.getChildren().size()==nArgs)
-						foundConstructor = (ASTEntity)entity;
+				foundConstructor = parentEntity.getMember(className, nArgs);
 			if(foundConstructor!=null)
 				ret.add(foundConstructor);
 		}
 		else {
-			int idx = CodeManipulation.topLevelIndexOf(callText, '(', 0);
-			if(idx==-1)
-				idx = callText.length()-1;
-			int idxEnd = CodeManipulation.topLevelIndexOf(callText, ')', idx);
+			int idx = statement.getOpeningParenthesis(start, end);
+			int idxEnd = statement.getClosingParenthesis(start, end);
 			int pos;
-			if((pos = CodeManipulation.topLevelIndexOf(callText, "->", 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+2), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, ':', 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+1), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, '?', 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+1), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, "==", 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+2), variableClasses, defaultParentEntity, defaultParentEntity));
+			int operator = statement.getOperator(start, end);
+			if(operator!=-1) {
+				pos = statement.indexOf(operator, start, end);
+				if(pos<end-1) {
+					getStatementCalls(statement, start, pos, variableClasses, defaultParentEntity, defaultParentEntity, ret);
+					getStatementCalls(statement, pos+StatementTree.OPERATORS[operator].length(), end, variableClasses, defaultParentEntity, defaultParentEntity, ret);
 				}
 			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, '<', 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+1), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, '>', 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+1), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, "&&", 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+2), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, "||", 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+2), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, "!=", 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+2), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, '+', 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+1), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, '-', 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+1), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, '*', 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+1), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, '/', 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+1), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, '!', 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+1), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if(idxEnd!=callText.length()-1 && CodeManipulation.topLevelIndexOf(callText, ' ', 0)!=-1) {
-				ret.addAll(recognizeKnownEntity(callText.substring(0, idx), defaultParentEntity, variableClasses, defaultParentEntity));
+			else if(idxEnd!=end-1 && statement.indexOf(StatementTree.SPACE, start, end)!=-1) {
+				recognizeKnownEntity(statement, start, idx, defaultParentEntity, variableClasses, defaultParentEntity, ret);
 				if(idxEnd!=-1) {
-					ret.addAll(getStatementCalls(callText.substring(idx+1, idxEnd), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(recognizeKnownEntity(callText.substring(idxEnd+1), defaultParentEntity, variableClasses, defaultParentEntity));
+					getStatementCalls(statement, idx+1, idxEnd, variableClasses, defaultParentEntity, defaultParentEntity, ret);
+					recognizeKnownEntity(statement, idxEnd+1, end, defaultParentEntity, variableClasses, defaultParentEntity, ret);
 				}
 			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, '.', 0))!=-1) {
-				String entityText = callText.substring(0, pos).trim();
+			else if((pos = statement.indexOf(StatementTree.DOT, start, end))!=-1) {
+				int entityEnd = statement.trimEnd(start, pos);
+				String entityText = text.substring(start, entityEnd);
 				if(variableClasses.get(entityText)!=null) {
 					parentEntity = variableClasses.get(entityText);
 					ret.add(parentEntity);
 					//System.out.println("Variable : "+entityText+" -> "+parentEntity.getStackTrace());
 				}
 				else {
-					ArrayList<ASTEntity> found = recognizeKnownEntity(entityText, parentEntity, variableClasses, defaultParentEntity);
-					if(!found.isEmpty() && found.get(found.size()-1).isClass())
-						parentEntity = found.get(found.size()-1);
-					else if(!found.isEmpty() && projectClasses.get(found.get(found.size()-1).getType())!=null) {
-						parentEntity = projectClasses.get(found.get(found.size()-1).getType());
+					int foundStart = ret.size();
+					recognizeKnownEntity(statement, start, entityEnd, parentEntity, variableClasses, defaultParentEntity, ret);
+					if(ret.size()>foundStart && ret.get(ret.size()-1).isClass())
+						parentEntity = ret.get(ret.size()-1);
+					else if(ret.size()>foundStart && getProjectClass(ret.get(ret.size()-1).getType())!=null) {
+						parentEntity = getProjectClass(ret.get(ret.size()-1).getType());
 						//System.out.println("Return : "+parentEntity.getStackTrace());
 					}
 					//else
 						//System.out.println("Return : unchanged for "+entityText);
-					ret.addAll(found);
 				}
-				ret.addAll(recognizeKnownEntity(callText.substring(pos+1), parentEntity, variableClasses, defaultParentEntity));
+				recognizeKnownEntity(statement, pos+1, end, parentEntity, variableClasses, defaultParentEntity, ret);
 			}
 			else {
-				int nArgs = CodeManipulation.topLevelCountOf(callText, ',', idx+1)+1;
-				if(idxEnd==-1 || idx>=callText.length()-1 || callText.substring(idx+1, idxEnd).trim().isEmpty())
+				int nArgs = statement.countOf(StatementTree.COMMA, idx+1, end)+1;
+				if(idxEnd==-1 || idx>=end-1 || statement.isBlank(idx+1, idxEnd))
 					nArgs = 0;
-				String methodName = callText.substring(0, idx).trim();
+				String methodName = text.substring(start, idx).trim();
 				ASTEntity foundMethod = null;
 				if(parentEntity!=null)
-					for(Node entity : parentEntity.getChildren())
-						if(entity.getName().equals(methodName) && entity.getChildren().size()==nArgs)
-							foundMethod = (ASTEntity)entity;
+					foundMethod = parentEntity.getMember(methodName, nArgs);
 				for(int i=0;i<nArgs;i++) {
-					pos = CodeManipulation.topLevelIndexOf(callText, ',', idx+1);
+					pos = statement.indexOf(StatementTree.COMMA, idx+1, end);
 					if(pos==-1)
 						pos = idxEnd;
-					ret.addAll(getStatementCalls(callText.substring(idx+1, pos), variableClasses, defaultParentEntity, defaultParentEntity));
+					getStatementCalls(statement, idx+1, pos, variableClasses, defaultParentEntity, defaultParentEntity, ret);
 					idx = pos;
 				}
 				if(foundMethod!=null)
@@ -373,7 +497,6 @@ public class ASTProject {
 					ret.add(parentEntity);
 			}
 		}
-		return ret;
 	}
 	
 
@@ -382,23 +505,82 @@ public class ASTProject {
 	 * Imports all Java classes found in <code>.java</code> files under the designated directory
 	 * and its sub-directories into the project.  {@link #updateProject} must be called afterwards.
 	 * @param path a valid directory path
+	 * @see #importPath(String, int)
 	 * @see #importFile(String)
 	 * @see #updateProject()
 	 */
 	public void importPath(String path) {
+		for(String file : listJavaFiles(path, new ArrayList<String>()))
+			importFile(file);
+	}
+	/**
+	 * <h1>importPath</h1>
+	 * Parallel version of {@link #importPath(String)}. Files are read and parsed by a pool of threads,
+	 * but are added to the project in the same order as the sequential import, so that both produce
+	 * identical projects. {@link #updateProject} must be called afterwards.
+	 * @param path a valid directory path
+	 * @param parallelism the number of threads used to read and parse files (values less than 2 fall back to sequential import)
+	 * @see #importPath(String)
+	 * @see #updateProject()
+	 */
+	public void importPath(String path, int parallelism) {
+		ArrayList<String> files = listJavaFiles(path, new ArrayList<String>());
+		if(parallelism<2 || files.size()<2) {
+			for(String file : files)
+				importFile(file);
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, files.size()));
+		try {
+			ArrayList<Future<ClassObject>> parsed = new ArrayList<Future<ClassObject>>();
+			for(String file : files)
+				parsed.add(executor.submit(() -> {
+					ClassObject obj = new ClassObject(file);
+					obj.getRoot();//parse while still in the worker thread
+					return obj;
+				}));
+			for(int i=0;i<files.size();i++) {
+				try {
+					ClassObject obj = parsed.get(i).get();
+					addClassObject(obj);
+					importedFiles.put(getFileKey(files.get(i)), obj);
+				}
+				catch(ExecutionException e) {
+					System.err.println(files.get(i)+": "+e.getCause().toString());
+				}
+				catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+				catch(Exception e) {
+					System.err.println(files.get(i)+": "+e.toString());
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	/**
+	 * <h1>listJavaFiles</h1>
+	 * @param path a directory path
+	 * @param files the list in which to append <code>.java</code> file paths found under the directory and its sub-directories
+	 * @return the given list of files
+	 */
+	protected static ArrayList<String> listJavaFiles(String path, ArrayList<String> files) {
 	    File directory = new File(path);
 	    File[] fList = directory.listFiles();
 	    if(fList!=null)
 		    for (File file : fList) {
 		        if (file.isFile()) {
-		        	//System.out.println(file.getName());
 		        	if(file.getPath().endsWith(".java"))
-		        		importFile(file.getPath());
+		        		files.add(file.getPath());
 		        } 
 		        else if (file.isDirectory()) {
-		        	importPath(file.getPath());
+		        	listJavaFiles(file.getPath(), files);
 		        }
 		    }
+	    return files;
 	}
 	/**
 	 * <h1>importFile</h1>
@@ -413,12 +595,58 @@ public class ASTProject {
 		try {
 			ClassObject obj = new ClassObject(path);
 			addClassObject(obj);
+			importedFiles.put(getFileKey(path), obj);
 		}
 		catch(Exception e) {
 			System.err.println(path+": "+e.toString());
 			//e.printStackTrace();
 		}
 	}
+	/**
+	 * <h1>reloadFile</h1>
+	 * Reads a Java class file again and incrementally updates the project, so that {@link #updateProject} does not
+	 * need to be called afterwards. If the file no longer exists or cannot be parsed, classes previously imported from it
+	 * are removed, and if its content has not changed nothing is done.
+	 * @param path a file path
+	 * @see #importFile(String)
+	 * @see #replaceClassObject(ClassObject, ClassObject)
+	 */
+	public void reloadFile(String path) {
+		File file = new File(path);
+		String key = getFileKey(path);
+		ClassObject previous = importedFiles.get(key);
+		ClassObject current = null;
+		if(file.isFile()) {
+			try {
+				current = new ClassObject(path);
+				if(previous!=null && previous.getContent().equals(current.getContent()))
+					return;
+				if(current.getRoot()==null)
+					current = null;
+			}
+			catch(Exception e) {
+				System.err.println(path+": "+e.toString());
+				current = null;
+			}
+		}
+		if(previous==null && current==null)
+			return;
+		replaceClassObject(previous, current);
+		if(current==null)
+			importedFiles.remove(key);
+		else
+			importedFiles.put(key, current);
+	}
+	private static String getFileKey(String path) {
+		return new File(path).toPath().toAbsolutePath().normalize().toString();
+	}
+	/**
+	 * <h1>getImportedFiles</h1>
+	 * @return the absolute paths of files imported into the project
+	 */
+	public ArrayList<String> getImportedFiles() {
+		return new ArrayList<String>(importedFiles.keySet());
+	}
 	/**
 	 * <h1>addClassObject</h1>
 	 * Adds a {@link ClassObject} to the project. {@link #updateProject} must be called afterwards.
@@ -427,9 +655,46 @@ public class ASTProject {
 	 * @see #updateProject()
 	 */
 	public void addClassObject(ClassObject classObject) {
-		for(Node entity : classObject.getRoot().collapse())
-			if(((ASTEntity)entity).isClass())
-				projectClasses.put(entity.getStackTrace(), (ASTEntity)entity);
+		for(ASTEntity entity : classObject.getRoot().preorderClasses())
+			projectClasses.put(entity.getStackTrace(), entity);
+	}
+	
+	/**
+	 * <h1>insertClassObject</h1>
+	 * Adds a {@link ClassObject} to the project and incrementally updates project metadata, so that
+	 * {@link #updateProject} does not need to be called afterwards.
+	 * @param classObject the class to add
+	 * @see #replaceClassObject(ClassObject, ClassObject)
+	 */
+	public void insertClassObject(ClassObject classObject) {
+		replaceClassObject(null, classObject);
+	}
+	/**
+	 * <h1>removeClassObject</h1>
+	 * Removes a {@link ClassObject} from the project and incrementally updates project metadata, so that
+	 * {@link #updateProject} does not need to be called afterwards.
+	 * @param classObject a class previously added to the project (its content should not have changed since then)
+	 * @see #replaceClassObject(ClassObject, ClassObject)
+	 */
+	public void removeClassObject(ClassObject classObject) {
+		replaceClassObject(classObject, null);
+	}
+	/**
+	 * <h1>replaceClassObject</h1>
+	 * Replaces a {@link ClassObject} of the project with another and incrementally updates project metadata, so that
+	 * {@link #updateProject} does not need to be called afterwards. Methods of removed classes free their traversal matrix
+	 * ids, which are taken by the methods that were last in order, and new methods are added at the end.
+	 * Calls are resolved again only for new methods, for methods that called removed ones and for methods
+	 * that looked up any of the changed class names.
+	 * @param previous a class previously added to the project (its content should not have changed since then), or null
+	 * @param current the class to add in its place, or null (classes that cannot be parsed are also not added)
+	 * @see #getIndexInTraversalMatrix(ASTEntity)
+	 * @see #generateCallGraph()
+	 */
+	public void replaceClassObject(ClassObject previous, ClassObject current) {
+		callCache.replaceClasses(projectClasses, allMethods, allMethodsIds, previous==null?null:previous.getRoot(), current==null?null:current.getRoot());
+		methodIndex = null;
+		classIndex = null;
 	}
 	
 	public void generateCropTraversalMatrix() {
@@ -449,41 +714,41 @@ public class ASTProject {
 		}
 		return mat;
 	}
-	/*
-		public void generateCroppedTraversalMatrix(ASTEntity ast) {
-		ArrayList<Integer> list1=new ArrayList<Integer>();
-		ArrayList<Integer> list2=new ArrayList<Integer>();
-		ArrayList<Integer> testlist= new ArrayList<Integer>();
-		int N = allMethods.size(); 
-		double[][] M = new double[N][N];
-		M=this.generateTraversalMatrix();
-		int number=allMethodsIds.get(ast);
-		list2.add(number);
-		do {
-			number=list2.get(0);
-			System.out.println(number);
-		for(int i=0;i<N;i++) {
-			if((M[number][i]==1)&&(!list1.contains(i))&&(!list2.contains(i))) {
-				list2.add(i);
-				System.out.println("OK");
+	/**
+	 * <h1>getReachableMethods</h1>
+	 * Uses {@link Reachability} to find the methods reachable from a given one in the call graph of the project.
+	 * @param method a project method
+	 * @param forward true to find the methods called by the given one, false to find the methods calling it
+	 * @param maxDepth the maximum number of calls to follow, or {@link Reachability#UNLIMITED}
+	 * @param excluded methods to neither return nor search through, or null
+	 * @return the methods found, including the given one, in the order of their traversal matrix ids
+	 */
+	public ArrayList<ASTEntity> getReachableMethods(ASTEntity method, boolean forward, int maxDepth, Collection<ASTEntity> excluded) {
+		BitSet excludedIds = null;
+		if(excluded!=null) {
+			excludedIds = new BitSet(allMethods.size());
+			for(ASTEntity excludedMethod : excluded) {
+				Integer id = allMethodsIds.get(excludedMethod);
+				if(id!=null)
+					excludedIds.set(id);
 			}
 		}
-		System.out.println("LIST2: "+list2);
-		list1.add(number);
-		list2.remove(0);
-		System.out.println(list2.size());
-				}while(!list2.isEmpty());
-		System.out.println("LIST1: "+list1);
-		Collections.sort(list1);
-		System.out.println("LIST1 SORTED: "+list1);
-		double [][] CroppedM=new double[list1.size()][list1.size()];
-		for(int i=0;i<list1.size();i++)
-			for(int j=0;j<list1.size();j++) {
-				CroppedM[i][j]=M[list1.get(i)][list1.get(j)];
-			}
-		System.out.println(Arrays.deepToString(CroppedM));
+		BitSet found = new Reachability(generateCallGraph()).getSlice(new int[]{getIndexInTraversalMatrix(method)}, forward, maxDepth, excludedIds);
+		ArrayList<ASTEntity> ret = new ArrayList<ASTEntity>();
+		for(int id=found.nextSetBit(0);id>=0;id=found.nextSetBit(id+1))
+			ret.add(allMethods.get(id));
+		return ret;
+	}
+	/**
+	 * <h1>generateCroppedCallGraph</h1>
+	 * Generates the call graph between the methods that a given method directly or indirectly calls (including itself).
+	 * @param method a project method
+	 * @return the cropped call graph, whose original ids are the ones used by {@link #getIndexInTraversalMatrix(ASTEntity)}
+	 */
+	public CallSubgraph generateCroppedCallGraph(ASTEntity method) {
+		CallGraph callGraph = generateCallGraph();
+		return new CallSubgraph(callGraph, new Reachability(callGraph).getForwardSlice(getIndexInTraversalMatrix(method)));
 	}
-	*/
 	
 	
 }
\ No newline at end of file
@@ -2,7 +2,14 @@ package analysis.code;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <h1>ASTProject</h1>
@@ -15,6 +22,10 @@ public class ASTProjectImporter {
 	private HashMap<String, ASTEntity> projectClasses = new HashMap<String, ASTEntity>();
 	private ArrayList<ASTEntity> allMethods = new ArrayList<ASTEntity>();
 	private HashMap<ASTEntity, Integer> allMethodsIds = new  HashMap<ASTEntity, Integer>();
+	private CallCache callCache = new CallCache();
+	private ThreadLocal<HashSet<String>> classLookups = new ThreadLocal<HashSet<String>>();
+	private boolean outdated = false;
+	private static final int METHODS_PER_TASK = 16;
 	
 	public ASTProjectImporter() {
 	}
@@ -28,27 +39,128 @@ public class ASTProjectImporter {
 	public void updateProject() {
 		allMethodsIds.clear();
 		allMethods.clear();
+		callCache.clear();
 		for(ASTEntity projectClass : projectClasses.values()) {
-			for(Node method : projectClass.collapse()) 
-			if(((ASTEntity)method).isMethod()){
-				allMethodsIds.put((ASTEntity)method, allMethods.size());
-				allMethods.add((ASTEntity)method);
+			for(ASTEntity method : projectClass.preorderMethods()) 
+			if(!allMethodsIds.containsKey(method)){
+				allMethodsIds.put(method, allMethods.size());
+				allMethods.add(method);
 			}
 		}
+		outdated = false;
 	}
+	/**
+	 * <h1>createCallGraph</h1>
+	 * Calls {@link #createCallGraph(int)} with as many threads as there are available processors.
+	 * @return a matrix whose non-zero elements <code>(i, j)</code> denote that method <code>i</code> calls method <code>j</code>
+	 * @throws Exception
+	 */
 	public SparceMatrix createCallGraph() throws Exception {
-		updateProject();
-		int N = allMethods.size(); 
+		return createCallGraph(Runtime.getRuntime().availableProcessors());
+	}
+	/**
+	 * <h1>createCallGraph</h1>
+	 * Calls {@link #updateProject} if classes have been added with {@link #addClassObject(ClassObject)} and then
+	 * creates a graph of calls between project methods. Calls identified by {@link #getCalledMethodsBy} are cached,
+	 * so that only calls affected by {@link #replaceClassObject(ClassObject, ClassObject)} are identified again.<br/>
+	 * Methods are resolved by multiple threads, each of which takes small batches of methods until none are left.
+	 * Project classes are only read during this process and each thread writes its results to separate rows,
+	 * which are merged into the call cache and the matrix after all threads finish. Hence, the project should
+	 * not be modified by other threads while the call graph is being created.
+	 * @param parallelism the number of threads used to resolve method calls
+	 * @return a matrix whose non-zero elements <code>(i, j)</code> denote that method <code>i</code> calls method <code>j</code>
+	 * @throws Exception
+	 */
+	public SparceMatrix createCallGraph(int parallelism) throws Exception {
+		if(outdated)
+			updateProject();
+		int N = allMethods.size();
+		int[][] rows = new int[N][];
+		ASTEntity[][] resolvedCalls = new ASTEntity[N][];
+		String[][] resolvedLookups = new String[N][];
+		AtomicInteger nextMethod = new AtomicInteger();
+		Runnable resolver = () -> {
+			for(int start=nextMethod.getAndAdd(METHODS_PER_TASK);start<N;start=nextMethod.getAndAdd(METHODS_PER_TASK))
+				for(int i=start;i<Math.min(N, start+METHODS_PER_TASK);i++)
+					rows[i] = createCallGraphRow(i, resolvedCalls, resolvedLookups);
+		};
+		int threads = Math.min(parallelism, (N+METHODS_PER_TASK-1)/METHODS_PER_TASK);
+		if(threads<2)
+			resolver.run();
+		else {
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				ArrayList<Future<?>> tasks = new ArrayList<Future<?>>();
+				for(int thread=0;thread<threads;thread++)
+					tasks.add(executor.submit(resolver));
+				for(Future<?> task : tasks)
+					task.get();
+			}
+			catch(ExecutionException e) {
+				if(e.getCause() instanceof Exception)
+					throw (Exception)e.getCause();
+				throw e;
+			}
+			finally {
+				executor.shutdownNow();
+			}
+		}
 		SparceMatrix M = new SparceMatrix(N);
 		for(int i=0;i<N;i++) {
-			M.set(i, i, 1);
-			for(ASTEntity entity : getCalledMethodsBy(allMethods.get(i)))
-				if(entity.isMethod() && allMethods.contains(entity)) {
-					M.set(i, allMethodsIds.get(entity), 1);
-				}
+			if(resolvedCalls[i]!=null)
+				callCache.put(allMethods.get(i), Arrays.asList(resolvedCalls[i]), Arrays.asList(resolvedLookups[i]));
+			M.setRow(i, rows[i], 1);
 		}
 		return M;
 	}
+	/**
+	 * <h1>createCallGraphRow</h1>
+	 * Obtains the calls of a method from the call cache or identifies them with {@link #getCalledMethodsBy}.
+	 * Newly identified calls and the class names looked up to identify them are written in the given arrays
+	 * instead of the call cache, so that this method can run in parallel for different methods.
+	 * @param i the id of a project method
+	 * @param resolvedCalls the array in which to write newly identified calls
+	 * @param resolvedLookups the array in which to write the class names looked up to identify calls
+	 * @return the ids of the method itself and the project methods it calls
+	 */
+	private int[] createCallGraphRow(int i, ASTEntity[][] resolvedCalls, String[][] resolvedLookups) {
+		ASTEntity method = allMethods.get(i);
+		ASTEntity[] calls = callCache.get(method);
+		if(calls==null) {
+			HashSet<String> lookups = new HashSet<String>();
+			classLookups.set(lookups);
+			try {
+				ArrayList<ASTEntity> called = getCalledMethodsBy(method);
+				calls = called.toArray(new ASTEntity[called.size()]);
+			}
+			finally {
+				classLookups.remove();
+			}
+			resolvedCalls[i] = calls;
+			resolvedLookups[i] = lookups.toArray(new String[lookups.size()]);
+		}
+		int[] row = new int[calls.length+1];
+		int rowSize = 0;
+		row[rowSize++] = i;
+		for(ASTEntity entity : calls) {
+			Integer id = allMethodsIds.get(entity);
+			if(id!=null)
+				row[rowSize++] = id;
+		}
+		return Arrays.copyOf(row, rowSize);
+	}
+	/**
+	 * <h1>getProjectClass</h1>
+	 * Used by call resolution to look up project classes, so that the names looked up can be tracked.
+	 * @param name a class name
+	 * @return the project class with the given name, or null if no such class exists
+	 */
+	private ASTEntity getProjectClass(String name) {
+		HashSet<String> lookups = classLookups.get();
+		if(lookups!=null)
+			lookups.add(name);
+		return projectClasses.get(name);
+	}
 	public Object getMethod(int i) {
 		return allMethods.get(i);
 	}
@@ -72,8 +184,8 @@ public class ASTProjectImporter {
 					String variableName = variableType[variableType.length-1];
 					//handle hashmaps, lists, etc by selecting the first known variable reference
 					for(int i=0;i<variableType.length-1;i++) {
-						if(projectClasses.get(variableType[i])!=null) {
-							variableClasses.put(variableName, projectClasses.get(variableType[i]));
+						if(getProjectClass(variableType[i])!=null) {
+							variableClasses.put(variableName, getProjectClass(variableType[i]));
 							break;
 						}
 					}
@@ -82,51 +194,59 @@ public class ASTProjectImporter {
 		}
 
 		ArrayList<ASTEntity> ret = new ArrayList<ASTEntity>();
-		for(String statement : CodeManipulation.splitToStatements(method.getImplementation().trim(), 1))
-			for(ASTEntity statementCall : getStatementCalls(statement, variableClasses, (ASTEntity)method.getParent(), (ASTEntity)method.getParent()))
+		ArrayList<ASTEntity> statementCalls = new ArrayList<ASTEntity>();
+		for(String statement : CodeManipulation.splitToStatements(method.getImplementation().trim(), 1)) {
+			statementCalls.clear();
+			getStatementCalls(new StatementTree(statement), 0, statement.length(), variableClasses, (ASTEntity)method.getParent(), (ASTEntity)method.getParent(), statementCalls);
+			for(ASTEntity statementCall : statementCalls)
 				if(!ret.contains(statementCall))
 					ret.add(statementCall);
+		}
 		return ret;
 	}
 	/**
 	 * <h1>getStatementCalls</h1>
 	 * Identifies variable types, which are then added to the given map of variable classes. 
 	 * Calls {@link #recognizeKnownEntity} to identify method calls, as well as method and operator arguments.
-	 * @param statement the given statement
+	 * @param statement the given parsed statement
+	 * @param start the start of the part of the statement to handle
+	 * @param end the end of the part of the statement to handle (exclusive)
 	 * @param variableClasses a map that maps variables to their closest {@link ASTEntity} defined in the project
 	 * @param parentEntity
 	 * @param defaultParentEntity
-	 * @return a list of identified {@link ASTEntity} instances from the project used by the given statement
-	 * @see #recognizeKnownEntity(String, ASTEntity, HashMap, ASTEntity)
+	 * @param calls a list to which identified {@link ASTEntity} instances from the project used by the given part are added
+	 * @see #recognizeKnownEntity(StatementTree, int, int, ASTEntity, HashMap, ASTEntity, ArrayList)
 	 */
-	private ArrayList<ASTEntity> getStatementCalls(String statement, HashMap<String, ASTEntity> variableClasses, ASTEntity parentEntity, ASTEntity defaultParentEntity) {
-		statement = statement.trim();
-		ArrayList<ASTEntity> calls = new ArrayList<ASTEntity>();
-		//System.out.println("--->"+statement);
+	private void getStatementCalls(StatementTree statement, int start, int end, HashMap<String, ASTEntity> variableClasses, ASTEntity parentEntity, ASTEntity defaultParentEntity, ArrayList<ASTEntity> calls) {
+		String text = statement.getText();
+		start = statement.trimStart(start, end);
+		end = statement.trimEnd(start, end);
 		
-		int pos = 0;
-		while(pos<statement.length()) {
-			int idxEquals = CodeManipulation.topLevelIndexOf(statement, '=', pos);
+		int pos = start;
+		while(pos<end) {
+			int idxEquals = statement.indexOf(StatementTree.ASSIGN, pos, end);
 			if(idxEquals==-1) {
-				idxEquals = CodeManipulation.topLevelIndexOf(statement, ':', pos);
-				int posQ = CodeManipulation.topLevelIndexOf(statement, '?', pos);
+				idxEquals = statement.indexOf(StatementTree.COLON, pos, end);
+				int posQ = statement.indexOf(StatementTree.QUESTION, pos, end);
 				if(posQ!=-1 && posQ<idxEquals)
 					idxEquals = -1;
 			}
-			if(idxEquals>0 && statement.charAt(idxEquals-1)=='!')//ommit != statements
+			if(idxEquals>start && text.charAt(idxEquals-1)=='!')//ommit != statements
 				idxEquals = -1;
-			if(idxEquals<statement.length()-1 && idxEquals<statement.length()-1 && statement.charAt(idxEquals+1)=='=')
+			if(idxEquals!=-1 && idxEquals<end-1 && text.charAt(idxEquals+1)=='=')
 				idxEquals = -1;
 			if(idxEquals!=-1) {
-				String LHStext = statement.substring(0, idxEquals).trim();
-				ArrayList<ASTEntity> RHSCalls = getStatementCalls(statement.substring(idxEquals+1), variableClasses, parentEntity, defaultParentEntity);
-				calls.addAll(getStatementCalls(LHStext, variableClasses, parentEntity, defaultParentEntity));
+				int LHSend = statement.trimEnd(start, idxEquals);
+				String LHStext = text.substring(start, LHSend);
+				ArrayList<ASTEntity> RHSCalls = new ArrayList<ASTEntity>();
+				getStatementCalls(statement, idxEquals+1, end, variableClasses, parentEntity, defaultParentEntity, RHSCalls);
+				getStatementCalls(statement, start, LHSend, variableClasses, parentEntity, defaultParentEntity, calls);
 				calls.addAll(RHSCalls);
 				String variableName = LHStext.substring(LHStext.lastIndexOf(' ')+1);
 				if(RHSCalls.size()>=1)  {
 					String variableType = RHSCalls.get(RHSCalls.size()-1).getType();
-					if(projectClasses.get(variableType)!=null)
-						variableClasses.put(variableName, projectClasses.get(variableType));
+					if(getProjectClass(variableType)!=null)
+						variableClasses.put(variableName, getProjectClass(variableType));
 				}
 				if(variableClasses.get(variableName)==null) {
 					String[] variableType = LHStext.split("(\\s|\\<|\\>|\\,)+");
@@ -134,8 +254,8 @@ public class ASTProjectImporter {
 						variableName = variableType[variableType.length-1];
 						//handle hashmaps, lists, etc by selecting the first known variable reference
 						for(int i=0;i<variableType.length-1;i++) {
-							if(projectClasses.get(variableType[i])!=null) {
-								variableClasses.put(variableName, projectClasses.get(variableType[i]));
+							if(getProjectClass(variableType[i])!=null) {
+								variableClasses.put(variableName, getProjectClass(variableType[i]));
 								break;
 							}
 						}
@@ -144,193 +264,104 @@ public class ASTProjectImporter {
 				pos = idxEquals+1;
 			}
 			else {
-				String entityText = statement.substring(pos);
-				ArrayList<ASTEntity> found = recognizeKnownEntity(entityText, parentEntity, variableClasses, defaultParentEntity);
-				if(!found.isEmpty())
-					parentEntity = found.get(found.size()-1);
-				calls.addAll(found);
+				recognizeKnownEntity(statement, pos, end, parentEntity, variableClasses, defaultParentEntity, calls);
 				break;
 			}
 		}
-		
-		return calls;
 	}
 	/**
 	 * <h1>recognizeKnownEntity</h1>
 	 * Identified method calls, as well as method and operator arguments. In turn calls {@link #getStatementCalls} to handle sub-structures,
 	 * such as arguments.
-	 * @param callText
+	 * @param statement the given parsed statement
+	 * @param start the start of the call text within the statement
+	 * @param end the end of the call text within the statement (exclusive)
 	 * @param parentEntity
 	 * @param variableClasses
 	 * @param defaultParentEntity
-	 * @return a list of identified {@link ASTEntity} instances from the project used by the given statement
-	 * @see #getStatementCalls(String, HashMap, ASTEntity, ASTEntity)
+	 * @param ret a list to which identified {@link ASTEntity} instances from the project used by the call text are added
+	 * @see #getStatementCalls(StatementTree, int, int, HashMap, ASTEntity, ASTEntity, ArrayList)
 	 */
-	synchronized private ArrayList<ASTEntity> recognizeKnownEntity(String callText, ASTEntity parentEntity,  HashMap<String, ASTEntity> variableClasses, ASTEntity defaultParentEntity) {
-		ArrayList<ASTEntity> ret = new ArrayList<ASTEntity>();
-		callText = callText.trim();
-		//while(callText.startsWith("(") && callText.endsWith(")")) 
-			//callText = callText.substring(1, callText.length()-1).trim();
-		if(!callText.contains(")")) {//static class references
-			if(projectClasses.get(callText)!=null)
-				ret.add(projectClasses.get(callText));
+	private void recognizeKnownEntity(StatementTree statement, int start, int end, ASTEntity parentEntity,  HashMap<String, ASTEntity> variableClasses, ASTEntity defaultParentEntity, ArrayList<ASTEntity> ret) {
+		String text = statement.getText();
+		start = statement.trimStart(start, end);
+		end = statement.trimEnd(start, end);
+		if(!statement.containsClosing(start, end)) {//static class references
+			ASTEntity projectClass = getProjectClass(text.substring(start, end));
+			if(projectClass!=null)
+				ret.add(projectClass);
 		}
-		else if(callText.startsWith("new ")) {//constructors
-			int idx = callText.indexOf("(");
-			int nArgs = CodeManipulation.topLevelCountOf(callText, ',', idx+1)+1;
-			int last = CodeManipulation.topLevelIndexOf(callText,')', idx+1);
-			try {
-				if(idx<0 || last>=callText.length()-1 || idx+1>=callText.length()-1)
-					nArgs = 0;
-				else if(callText.substring(idx+1, last).trim().isEmpty())
-					nArgs = 0;
-			}
-			catch(Exception e) {
+		else if(end-start>=4 && text.startsWith("new ", start)) {//constructors
+			int idx = statement.indexOfAnyOpening(start, end);
+			int argsStart = idx<0?start:idx+1;
+			int nArgs = statement.countOf(StatementTree.COMMA, argsStart, end)+1;
+			int last = statement.indexOf(StatementTree.CLOSING, argsStart, end);
+			if(idx<0 || last>=end-1 || idx+1>=end-1)
 				nArgs = 0;
-			}
-			String className = callText.substring(4, idx<0?callText.length():idx).trim();
-			parentEntity = projectClasses.get(className);
+			else if(last<0 || statement.isBlank(idx+1, last))
+				nArgs = 0;
+			String className = text.substring(start+4, idx<0?end:idx).trim();
+			parentEntity = getProjectClass(className);
 			ASTEntity foundConstructor = null;
 			if(parentEntity!=null)
-				for(Node entity : parentEntity.getChildren())
-					if(entity.getName().equals(className) && entity.getChildren().size()==nArgs)
-						foundConstructor = (ASTEntity)entity;
+				foundConstructor = parentEntity.getMember(className, nArgs);
 			if(foundConstructor!=null)
 				ret.add(foundConstructor);
 		}
 		else {
-			int idx = CodeManipulation.topLevelIndexOf(callText, '(', 0);
-			if(idx==-1)
-				idx = callText.length()-1;
-			int idxEnd = CodeManipulation.topLevelIndexOf(callText, ')', idx);
+			int idx = statement.getOpeningParenthesis(start, end);
+			int idxEnd = statement.getClosingParenthesis(start, end);
 			int pos;
-			if((pos = CodeManipulation.topLevelIndexOf(callText, "->", 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+2), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, ':', 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+1), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, '?', 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+1), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, "==", 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+2), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, '<', 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+1), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, '>', 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+1), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, "&&", 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+2), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, "||", 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+2), variableClasses, defaultParentEntity, defaultParentEntity));
+			int operator = statement.getOperator(start, end);
+			if(operator!=-1) {
+				pos = statement.indexOf(operator, start, end);
+				if(pos<end-1) {
+					getStatementCalls(statement, start, pos, variableClasses, defaultParentEntity, defaultParentEntity, ret);
+					getStatementCalls(statement, pos+StatementTree.OPERATORS[operator].length(), end, variableClasses, defaultParentEntity, defaultParentEntity, ret);
 				}
 			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, "!=", 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+2), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, '+', 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+1), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, '-', 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+1), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, '*', 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+1), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, '/', 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+1), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, '!', 0))!=-1) {
-				if(pos<callText.length()-1) {
-					ret.addAll(getStatementCalls(callText.substring(0, pos), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(getStatementCalls(callText.substring(pos+1), variableClasses, defaultParentEntity, defaultParentEntity));
-				}
-			}
-			else if(idxEnd!=callText.length()-1 && CodeManipulation.topLevelIndexOf(callText, ' ', 0)!=-1) {
-				ret.addAll(recognizeKnownEntity(callText.substring(0, idx), defaultParentEntity, variableClasses, defaultParentEntity));
+			else if(idxEnd!=end-1 && statement.indexOf(StatementTree.SPACE, start, end)!=-1) {
+				recognizeKnownEntity(statement, start, idx, defaultParentEntity, variableClasses, defaultParentEntity, ret);
 				if(idxEnd!=-1) {
-					ret.addAll(getStatementCalls(callText.substring(idx+1, idxEnd), variableClasses, defaultParentEntity, defaultParentEntity));
-					ret.addAll(recognizeKnownEntity(callText.substring(idxEnd+1), defaultParentEntity, variableClasses, defaultParentEntity));
+					getStatementCalls(statement, idx+1, idxEnd, variableClasses, defaultParentEntity, defaultParentEntity, ret);
+					recognizeKnownEntity(statement, idxEnd+1, end, defaultParentEntity, variableClasses, defaultParentEntity, ret);
 				}
 			}
-			else if((pos = CodeManipulation.topLevelIndexOf(callText, '.', 0))!=-1) {
-				String entityText = callText.substring(0, pos).trim();
+			else if((pos = statement.indexOf(StatementTree.DOT, start, end))!=-1) {
+				int entityEnd = statement.trimEnd(start, pos);
+				String entityText = text.substring(start, entityEnd);
 				if(variableClasses.get(entityText)!=null) {
 					parentEntity = variableClasses.get(entityText);
 					ret.add(parentEntity);
 					//System.out.println("Variable : "+entityText+" -> "+parentEntity.getStackTrace());
 				}
 				else {
-					ArrayList<ASTEntity> found = recognizeKnownEntity(entityText, parentEntity, variableClasses, defaultParentEntity);
-					if(!found.isEmpty() && found.get(found.size()-1).isClass())
-						parentEntity = found.get(found.size()-1);
-					else if(!found.isEmpty() && projectClasses.get(found.get(found.size()-1).getType())!=null) {
-						parentEntity = projectClasses.get(found.get(found.size()-1).getType());
+					int foundStart = ret.size();
+					recognizeKnownEntity(statement, start, entityEnd, parentEntity, variableClasses, defaultParentEntity, ret);
+					if(ret.size()>foundStart && ret.get(ret.size()-1).isClass())
+						parentEntity = ret.get(ret.size()-1);
+					else if(ret.size()>foundStart && getProjectClass(ret.get(ret.size()-1).getType())!=null) {
+						parentEntity = getProjectClass(ret.get(ret.size()-1).getType());
 						//System.out.println("Return : "+parentEntity.getStackTrace());
 					}
 					//else
 						//System.out.println("Return : unchanged for "+entityText);
-					ret.addAll(found);
 				}
-				ret.addAll(recognizeKnownEntity(callText.substring(pos+1), parentEntity, variableClasses, defaultParentEntity));
+				recognizeKnownEntity(statement, pos+1, end, parentEntity, variableClasses, defaultParentEntity, ret);
 			}
 			else {
-				int nArgs = CodeManipulation.topLevelCountOf(callText, ',', idx+1)+1;
-				if(idxEnd==-1 || idx>=callText.length()-1 || callText.substring(idx+1, idxEnd).trim().isEmpty())
+				int nArgs = statement.countOf(StatementTree.COMMA, idx+1, end)+1;
+				if(idxEnd==-1 || idx>=end-1 || statement.isBlank(idx+1, idxEnd))
 					nArgs = 0;
-				String methodName = callText.substring(0, idx).trim();
+				String methodName = text.substring(start, idx).trim();
 				ASTEntity foundMethod = null;
 				if(parentEntity!=null)
-					for(Node entity : parentEntity.getChildren())
-						if(entity.getName().equals(methodName) && entity.getChildren().size()==nArgs)
-							foundMethod = (ASTEntity)entity;
+					foundMethod = parentEntity.getMember(methodName, nArgs);
 				for(int i=0;i<nArgs;i++) {
-					pos = CodeManipulation.topLevelIndexOf(callText, ',', idx+1);
+					pos = statement.indexOf(StatementTree.COMMA, idx+1, end);
 					if(pos==-1)
 						pos = idxEnd;
-					ret.addAll(getStatementCalls(callText.substring(idx+1, pos), variableClasses, defaultParentEntity, defaultParentEntity));
+					getStatementCalls(statement, idx+1, pos, variableClasses, defaultParentEntity, defaultParentEntity, ret);
 					idx = pos;
 				}
 				if(foundMethod!=null)
@@ -339,7 +370,6 @@ public class ASTProjectImporter {
 					ret.add(parentEntity);
 			}
 		}
-		return ret;
 	}
 	protected void importFile(File file) throws Exception {
 		ClassObject obj = new ClassObject(file.getPath());
@@ -353,10 +383,25 @@ public class ASTProjectImporter {
 	 * @see #updateProject()
 	 */
 	public void addClassObject(ClassObject classObject) {
-		Node root = classObject.getRoot();
+		ASTEntity root = classObject.getRoot();
 		if(root!=null)
-			for(Node entity : root.collapse())
-				if(((ASTEntity)entity).isClass())
-					projectClasses.put(entity.getStackTrace(), (ASTEntity)entity);
+			for(ASTEntity entity : root.preorderClasses())
+				projectClasses.put(entity.getStackTrace(), entity);
+		outdated = true;
+	}
+	/**
+	 * <h1>replaceClassObject</h1>
+	 * Replaces a {@link ClassObject} of the project with another and incrementally updates project metadata, so that
+	 * {@link #updateProject} does not need to be called afterwards. Methods of removed classes free their ids,
+	 * which are taken by the methods that were last in order, and new methods are added at the end.
+	 * Only the calls of new methods, of methods that called removed ones and of methods that looked up
+	 * any of the changed class names are identified again by {@link #createCallGraph()}.
+	 * @param previous a class previously added to the project (its content should not have changed since then), or null to only add a class
+	 * @param current the class to add in its place, or null to only remove a class (classes that cannot be parsed are also not added)
+	 */
+	public void replaceClassObject(ClassObject previous, ClassObject current) {
+		if(outdated)
+			updateProject();
+		callCache.replaceClasses(projectClasses, allMethods, allMethodsIds, previous==null?null:previous.getRoot(), current==null?null:current.getRoot());
 	}
 }
\ No newline at end of file
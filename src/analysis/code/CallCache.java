@@ -0,0 +1,160 @@
+package analysis.code;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * <h1>CallCache</h1>
+ * This class keeps the project methods called by each method, together with the class names that were looked up
+ * while resolving these calls. This way, adding, replacing or removing classes only needs to invalidate the calls
+ * of methods that could resolve differently, instead of resolving all calls again.
+ * @author Manios Krasanakis
+ */
+class CallCache {
+	private HashMap<ASTEntity, ASTEntity[]> calls = new HashMap<ASTEntity, ASTEntity[]>();
+	private HashMap<ASTEntity, String[]> lookups = new HashMap<ASTEntity, String[]>();
+	private HashMap<ASTEntity, HashSet<ASTEntity>> callers = new HashMap<ASTEntity, HashSet<ASTEntity>>();
+	private HashMap<String, HashSet<ASTEntity>> lookedUpBy = new HashMap<String, HashSet<ASTEntity>>();
+
+	/**
+	 * <h1>get</h1>
+	 * @param method a project method
+	 * @return the cached methods called by the given method, or null if these are not cached
+	 */
+	public ASTEntity[] get(ASTEntity method) {
+		return calls.get(method);
+	}
+	/**
+	 * <h1>put</h1>
+	 * Caches the calls of a method.
+	 * @param method a project method
+	 * @param called the entities used by the method (only methods are kept)
+	 * @param classLookups the class names looked up while resolving the method's calls
+	 * @return the cached methods called by the given method
+	 */
+	public ASTEntity[] put(ASTEntity method, Collection<ASTEntity> called, Collection<String> classLookups) {
+		invalidate(method);
+		ArrayList<ASTEntity> calledMethods = new ArrayList<ASTEntity>();
+		for(ASTEntity entity : called)
+			if(entity!=null && entity.isMethod()) {
+				calledMethods.add(entity);
+				HashSet<ASTEntity> entityCallers = callers.get(entity);
+				if(entityCallers==null)
+					callers.put(entity, entityCallers = new HashSet<ASTEntity>());
+				entityCallers.add(method);
+			}
+		for(String name : classLookups) {
+			HashSet<ASTEntity> methods = lookedUpBy.get(name);
+			if(methods==null)
+				lookedUpBy.put(name, methods = new HashSet<ASTEntity>());
+			methods.add(method);
+		}
+		ASTEntity[] ret = calledMethods.toArray(new ASTEntity[calledMethods.size()]);
+		calls.put(method, ret);
+		lookups.put(method, classLookups.toArray(new String[classLookups.size()]));
+		return ret;
+	}
+	/**
+	 * <h1>invalidate</h1>
+	 * Removes the cached calls of a method.
+	 * @param method a project method
+	 */
+	public void invalidate(ASTEntity method) {
+		ASTEntity[] called = calls.remove(method);
+		if(called!=null)
+			for(ASTEntity entity : called) {
+				HashSet<ASTEntity> entityCallers = callers.get(entity);
+				if(entityCallers!=null && entityCallers.remove(method) && entityCallers.isEmpty())
+					callers.remove(entity);
+			}
+		String[] names = lookups.remove(method);
+		if(names!=null)
+			for(String name : names) {
+				HashSet<ASTEntity> methods = lookedUpBy.get(name);
+				if(methods!=null && methods.remove(method) && methods.isEmpty())
+					lookedUpBy.remove(name);
+			}
+	}
+	/**
+	 * <h1>clear</h1>
+	 * Removes all cached calls.
+	 */
+	public void clear() {
+		calls.clear();
+		lookups.clear();
+		callers.clear();
+		lookedUpBy.clear();
+	}
+	private void invalidateAll(HashSet<ASTEntity> methods) {
+		if(methods!=null)
+			for(ASTEntity method : new ArrayList<ASTEntity>(methods))
+				invalidate(method);
+	}
+	/**
+	 * <h1>replaceClasses</h1>
+	 * Replaces the classes of a {@link ClassObject} root in a project and updates its method registry, so that existing methods
+	 * keep their ids apart from the last one, which takes the id of a removed method. Calls are invalidated for methods that
+	 * called removed methods or looked up any of the changed class names.
+	 * @param projectClasses the project classes, which are updated
+	 * @param allMethods the project methods, which are updated
+	 * @param allMethodsIds the ids of project methods, which are updated
+	 * @param previousRoot the root entity of the classes to remove (null to only add classes)
+	 * @param currentRoot the root entity of the classes to add (null to only remove classes)
+	 */
+	public void replaceClasses(HashMap<String, ASTEntity> projectClasses, ArrayList<ASTEntity> allMethods, HashMap<ASTEntity, Integer> allMethodsIds, ASTEntity previousRoot, ASTEntity currentRoot) {
+		HashSet<String> changedNames = new HashSet<String>();
+		ArrayList<ASTEntity> removedClasses = new ArrayList<ASTEntity>();
+		if(previousRoot!=null)
+			for(ASTEntity entity : previousRoot.preorderClasses()) {
+				String name = entity.getStackTrace();
+				if(projectClasses.get(name)==entity) {
+					projectClasses.remove(name);
+					removedClasses.add(entity);
+					changedNames.add(name);
+				}
+			}
+		if(currentRoot!=null)
+			for(ASTEntity entity : currentRoot.preorderClasses()) {
+				String name = entity.getStackTrace();
+				ASTEntity displaced = projectClasses.put(name, entity);
+				if(displaced!=entity) {
+					if(displaced!=null)
+						removedClasses.add(displaced);
+					changedNames.add(name);
+				}
+			}
+		for(ASTEntity removedClass : removedClasses)
+			for(ASTEntity method : removedClass.preorderMethods()) {
+				if(allMethodsIds.containsKey(method) && !isInProject(method, projectClasses)) {
+					invalidateAll(callers.get(method));
+					invalidate(method);
+					int id = allMethodsIds.remove(method);
+					ASTEntity last = allMethods.remove(allMethods.size()-1);
+					if(last!=method) {
+						allMethods.set(id, last);
+						allMethodsIds.put(last, id);
+					}
+				}
+			}
+		if(currentRoot!=null)
+			for(ASTEntity method : currentRoot.preorderMethods())
+				if(!allMethodsIds.containsKey(method)) {
+					allMethodsIds.put(method, allMethods.size());
+					allMethods.add(method);
+				}
+		for(String name : changedNames)
+			invalidateAll(lookedUpBy.get(name));
+	}
+	/**
+	 * <h1>isInProject</h1>
+	 * @return whether any class containing the method is one of the project classes
+	 */
+	private static boolean isInProject(ASTEntity method, HashMap<String, ASTEntity> projectClasses) {
+		for(Node parent=method.getParent();parent!=null;parent=parent.getParent())
+			if(((ASTEntity)parent).isClass() && projectClasses.get(parent.getStackTrace())==parent)
+				return true;
+		return false;
+	}
+}
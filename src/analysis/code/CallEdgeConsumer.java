@@ -0,0 +1,18 @@
+package analysis.code;
+
+/**
+ * <h1>CallEdgeConsumer</h1>
+ * Receives the edges of a call graph one at a time, so that they can be processed without
+ * storing the whole graph in memory.
+ * @author Manios Krasanakis
+ * @see ASTProject#streamCalls(CallEdgeConsumer)
+ * @see CallGraph#forEachEdge(CallEdgeConsumer)
+ */
+public interface CallEdgeConsumer {
+	/**
+	 * <h1>accept</h1>
+	 * @param callerId the id of the calling method
+	 * @param calleeId the id of the called method
+	 */
+	void accept(int callerId, int calleeId);
+}
@@ -0,0 +1,172 @@
+package analysis.code;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * <h1>CallGraph</h1>
+ * This class represents calls between methods in compressed sparse row (CSR) form, so that memory grows with the
+ * number of calls instead of the square of the number of methods. A compressed sparse column (CSC) copy
+ * is also kept, so that both callees and callers of a method can be iterated in time proportional to their number.
+ * Method ids are the same as the ones used by {@link ASTProject#getIndexInTraversalMatrix(ASTEntity)}.
+ * @author Manios Krasanakis
+ */
+public class CallGraph implements Serializable {
+	private static final long serialVersionUID = 4417706126542349187L;
+	private int size;
+	private int[] rowOffsets;
+	private int[] columnIndices;
+	private int[] columnOffsets;
+	private int[] rowIndices;
+
+	/**
+	 * Constructor that creates a call graph from rows of callees. Callees of each row are sorted and duplicate calls are removed,
+	 * so rows do not need to be provided in any particular order.
+	 * @param size the number of methods
+	 * @param rowOffsets an array of length <code>size+1</code>, where row <code>i</code> spans positions
+	 * 	<code>rowOffsets[i]</code> to <code>rowOffsets[i+1]-1</code> of the column indices
+	 * @param columnIndices the ids of called methods for each row (the array may be longer than the used positions)
+	 */
+	public CallGraph(int size, int[] rowOffsets, int[] columnIndices) {
+		if(rowOffsets.length!=size+1)
+			throw new RuntimeException("Row offsets should have one more element than the graph size");
+		this.size = size;
+		this.rowOffsets = new int[size+1];
+		this.columnIndices = new int[rowOffsets[size]];
+		int nnz = 0;
+		for(int i=0;i<size;i++) {
+			int start = nnz;
+			for(int pos=rowOffsets[i];pos<rowOffsets[i+1];pos++) {
+				int j = columnIndices[pos];
+				if(j<0 || j>=size)
+					throw new RuntimeException("Invalid method id "+j);
+				this.columnIndices[nnz++] = j;
+			}
+			Arrays.sort(this.columnIndices, start, nnz);
+			int unique = start;
+			for(int pos=start;pos<nnz;pos++)
+				if(pos==start || this.columnIndices[pos]!=this.columnIndices[unique-1])
+					this.columnIndices[unique++] = this.columnIndices[pos];
+			nnz = unique;
+			this.rowOffsets[i+1] = nnz;
+		}
+		if(nnz!=this.columnIndices.length)
+			this.columnIndices = Arrays.copyOf(this.columnIndices, nnz);
+		createColumns();
+	}
+	/**
+	 * <h1>createColumns</h1>
+	 * Creates the compressed sparse column representation with a counting sort over the rows,
+	 * which leaves callers of each method sorted.
+	 */
+	private void createColumns() {
+		columnOffsets = new int[size+1];
+		for(int j : columnIndices)
+			columnOffsets[j+1]++;
+		for(int j=0;j<size;j++)
+			columnOffsets[j+1] += columnOffsets[j];
+		int[] fill = Arrays.copyOf(columnOffsets, size);
+		rowIndices = new int[columnIndices.length];
+		for(int i=0;i<size;i++)
+			for(int pos=rowOffsets[i];pos<rowOffsets[i+1];pos++)
+				rowIndices[fill[columnIndices[pos]]++] = i;
+	}
+	/**
+	 * <h1>size</h1>
+	 * @return the number of methods
+	 */
+	public int size() {
+		return size;
+	}
+	/**
+	 * <h1>countEdges</h1>
+	 * @return the number of calls between methods
+	 */
+	public int countEdges() {
+		return columnIndices.length;
+	}
+	/**
+	 * <h1>getOutDegree</h1>
+	 * @param method a method id
+	 * @return the number of methods called by the given method
+	 */
+	public int getOutDegree(int method) {
+		return rowOffsets[method+1]-rowOffsets[method];
+	}
+	/**
+	 * <h1>getInDegree</h1>
+	 * @param method a method id
+	 * @return the number of methods calling the given method
+	 */
+	public int getInDegree(int method) {
+		return columnOffsets[method+1]-columnOffsets[method];
+	}
+	/**
+	 * <h1>getCallee</h1>
+	 * Can be used together with {@link #getOutDegree(int)} to iterate through callees without creating new objects.
+	 * @param method a method id
+	 * @param k a number from 0 to the method's out-degree minus one
+	 * @return the id of the k-th method called by the given method (callees are sorted by id)
+	 */
+	public int getCallee(int method, int k) {
+		return columnIndices[rowOffsets[method]+k];
+	}
+	/**
+	 * <h1>getCaller</h1>
+	 * Can be used together with {@link #getInDegree(int)} to iterate through callers without creating new objects.
+	 * @param method a method id
+	 * @param k a number from 0 to the method's in-degree minus one
+	 * @return the id of the k-th method calling the given method (callers are sorted by id)
+	 */
+	public int getCaller(int method, int k) {
+		return rowIndices[columnOffsets[method]+k];
+	}
+	/**
+	 * <h1>getCallees</h1>
+	 * @param method a method id
+	 * @return a sorted array with the ids of methods called by the given method
+	 */
+	public int[] getCallees(int method) {
+		return Arrays.copyOfRange(columnIndices, rowOffsets[method], rowOffsets[method+1]);
+	}
+	/**
+	 * <h1>getCallers</h1>
+	 * @param method a method id
+	 * @return a sorted array with the ids of methods calling the given method
+	 */
+	public int[] getCallers(int method) {
+		return Arrays.copyOfRange(rowIndices, columnOffsets[method], columnOffsets[method+1]);
+	}
+	/**
+	 * <h1>hasEdge</h1>
+	 * @param caller a method id
+	 * @param callee a method id
+	 * @return whether the caller calls the callee
+	 */
+	public boolean hasEdge(int caller, int callee) {
+		return Arrays.binarySearch(columnIndices, rowOffsets[caller], rowOffsets[caller+1], callee)>=0;
+	}
+	/**
+	 * <h1>forEachEdge</h1>
+	 * Passes all edges to a consumer, ordered by caller and then by callee.
+	 * @param consumer the consumer of <code>(caller, callee)</code> ids
+	 */
+	public void forEachEdge(CallEdgeConsumer consumer) {
+		for(int caller=0;caller<size;caller++)
+			for(int k=rowOffsets[caller];k<rowOffsets[caller+1];k++)
+				consumer.accept(caller, columnIndices[k]);
+	}
+	/**
+	 * <h1>toDense</h1>
+	 * Exports the call graph to a dense matrix. This requires memory proportional to the square of the number
+	 * of methods and should only be used for small graphs.
+	 * @return a matrix <code>M</code> in which <code>M[i][j]</code> is 1 if method <code>i</code> calls method <code>j</code> and 0 otherwise
+	 */
+	public double[][] toDense() {
+		double[][] M = new double[size][size];
+		for(int i=0;i<size;i++)
+			for(int pos=rowOffsets[i];pos<rowOffsets[i+1];pos++)
+				M[i][columnIndices[pos]] = 1;
+		return M;
+	}
+}
@@ -0,0 +1,196 @@
+package analysis.code;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <h1>CallGraphRanking</h1>
+ * This class can be used to rank the importance of methods with power iterations over a {@link SparceMatrix} call graph,
+ * such as the ones created by {@link ASTProjectImporter#createCallGraph()}, in which non-zero elements <code>(x, y)</code>
+ * denote that method <code>x</code> calls method <code>y</code>. Matrix-vector products are split into row ranges
+ * which are calculated by multiple threads, and the matrix is never converted to a dense form.
+ * @author Manios Krasanakis
+ */
+public class CallGraphRanking {
+	private int threads;
+	private double tolerance = 1.E-9;
+	private int maxIterations = 100;
+
+	/**
+	 * Constructor that uses as many threads as available processors.
+	 */
+	public CallGraphRanking() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	/**
+	 * Constructor that uses a given number of threads.
+	 * @param threads the number of threads used to calculate matrix-vector products
+	 */
+	public CallGraphRanking(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+	/**
+	 * <h1>setConvergence</h1>
+	 * @param tolerance power iterations stop when the L1 norm of rank changes becomes smaller than this value (default is 1.E-9)
+	 * @param maxIterations the maximum number of power iterations (default is 100)
+	 * @return this object
+	 */
+	public CallGraphRanking setConvergence(double tolerance, int maxIterations) {
+		this.tolerance = tolerance;
+		this.maxIterations = maxIterations;
+		return this;
+	}
+	/**
+	 * <h1>pageRank</h1>
+	 * Calculates the PageRank of methods, in which each method passes its rank to the methods it calls.
+	 * Methods that call nothing distribute their rank uniformly to all methods.
+	 * @param callGraph the call graph
+	 * @param damping the probability of following a call instead of jumping to a random method (usually 0.85)
+	 * @return a vector of ranks that sum to one
+	 */
+	public double[] pageRank(SparceMatrix callGraph, double damping) {
+		int n = callGraph.size();
+		double[] ranks = new double[n];
+		if(n==0)
+			return ranks;
+		SparceMatrix incoming = callGraph.transpose();
+		double[] outSums = new double[n];
+		for(int x=0;x<n;x++)
+			outSums[x] = callGraph.getRowSum(x);
+		double[] scaled = new double[n];
+		double[] next = new double[n];
+		for(int x=0;x<n;x++)
+			ranks[x] = 1./n;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for(int iteration=0;iteration<maxIterations;iteration++) {
+				double danglingSum = 0;
+				for(int x=0;x<n;x++) {
+					if(outSums[x]==0) {
+						danglingSum += ranks[x];
+						scaled[x] = 0;
+					}
+					else
+						scaled[x] = ranks[x]/outSums[x];
+				}
+				double jump = (damping*danglingSum+1-damping)/n;
+				double[] previous = ranks;
+				double[] current = next;
+				double diff = 0;
+				for(double partialDiff : runInRanges(executor, n, (fromRow, toRow) -> {
+					incoming.multiply(scaled, current, fromRow, toRow);
+					double rangeDiff = 0;
+					for(int y=fromRow;y<toRow;y++) {
+						current[y] = damping*current[y]+jump;
+						rangeDiff += Math.abs(current[y]-previous[y]);
+					}
+					return rangeDiff;
+				}))
+					diff += partialDiff;
+				next = ranks;
+				ranks = current;
+				if(diff<tolerance)
+					break;
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		return ranks;
+	}
+	/**
+	 * <h1>hits</h1>
+	 * Calculates the HITS hub and authority scores of methods, where hubs are methods that call many authorities
+	 * and authorities are methods called by many hubs.
+	 * @param callGraph the call graph
+	 * @return an array whose first element is the vector of hub scores and second element is the vector of authority scores
+	 * 	(both vectors have unit L2 norm)
+	 */
+	public double[][] hits(SparceMatrix callGraph) {
+		int n = callGraph.size();
+		double[] hubs = new double[n];
+		double[] authorities = new double[n];
+		if(n==0)
+			return new double[][]{hubs, authorities};
+		SparceMatrix incoming = callGraph.transpose();
+		for(int x=0;x<n;x++)
+			hubs[x] = 1./Math.sqrt(n);
+		double[] nextHubs = new double[n];
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for(int iteration=0;iteration<maxIterations;iteration++) {
+				double[] currentHubs = hubs;
+				double[] currentAuthorities = authorities;
+				double[] updatedHubs = nextHubs;
+				runInRanges(executor, n, (fromRow, toRow) -> {
+					incoming.multiply(currentHubs, currentAuthorities, fromRow, toRow);
+					return 0.;
+				});
+				normalize(authorities);
+				runInRanges(executor, n, (fromRow, toRow) -> {
+					callGraph.multiply(currentAuthorities, updatedHubs, fromRow, toRow);
+					return 0.;
+				});
+				normalize(updatedHubs);
+				double diff = 0;
+				for(int x=0;x<n;x++)
+					diff += Math.abs(updatedHubs[x]-hubs[x]);
+				nextHubs = hubs;
+				hubs = updatedHubs;
+				if(diff<tolerance)
+					break;
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		return new double[][]{hubs, authorities};
+	}
+	private static void normalize(double[] vector) {
+		double sum = 0;
+		for(double value : vector)
+			sum += value*value;
+		if(sum==0)
+			return;
+		sum = Math.sqrt(sum);
+		for(int i=0;i<vector.length;i++)
+			vector[i] /= sum;
+	}
+
+	private interface RangeTask {
+		double run(int fromRow, int toRow);
+	}
+	/**
+	 * <h1>runInRanges</h1>
+	 * Splits rows into ranges, a few more than the number of threads to balance uneven rows,
+	 * and runs the given task for each range.
+	 * @return the values returned for each range
+	 */
+	private List<Double> runInRanges(ExecutorService executor, int n, RangeTask task) {
+		int chunk = Math.max(1, (n+threads*4-1)/(threads*4));
+		ArrayList<Callable<Double>> tasks = new ArrayList<Callable<Double>>();
+		for(int from=0;from<n;from+=chunk) {
+			int fromRow = from;
+			int toRow = Math.min(n, from+chunk);
+			tasks.add(() -> task.run(fromRow, toRow));
+		}
+		ArrayList<Double> results = new ArrayList<Double>();
+		try {
+			for(Future<Double> future : executor.invokeAll(tasks))
+				results.add(future.get());
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Ranking was interrupted");
+		}
+		catch(ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+		return results;
+	}
+}
@@ -0,0 +1,91 @@
+package analysis.code;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * <h1>CallSubgraph</h1>
+ * This class holds the sub-graph of a {@link CallGraph} induced by a set of methods, i.e. these methods and
+ * the calls between them. Methods are given new consecutive ids in the order of their original ids, and both
+ * ids can be converted to each other.
+ * @author Manios Krasanakis
+ */
+public class CallSubgraph implements Serializable {
+	private static final long serialVersionUID = -2379263040834621405L;
+	private CallGraph graph;
+	private int[] originalIds;
+
+	/**
+	 * Constructor that extracts the sub-graph of given methods in time proportional to the size of the call graph.
+	 * @param graph the call graph
+	 * @param methods the ids of methods to keep, such as the ones found by {@link Reachability}
+	 */
+	public CallSubgraph(CallGraph graph, BitSet methods) {
+		if(methods.length()>graph.size())
+			throw new RuntimeException("Invalid method id "+(methods.length()-1));
+		int size = methods.cardinality();
+		originalIds = new int[size];
+		int[] ids = new int[graph.size()];
+		Arrays.fill(ids, -1);
+		int id = 0;
+		for(int method=methods.nextSetBit(0);method>=0;method=methods.nextSetBit(method+1)) {
+			originalIds[id] = method;
+			ids[method] = id++;
+		}
+		int[] rowOffsets = new int[size+1];
+		int[] columnIndices = new int[16];
+		int nnz = 0;
+		for(int i=0;i<size;i++) {
+			int method = originalIds[i];
+			for(int k=0;k<graph.getOutDegree(method);k++) {
+				int callee = ids[graph.getCallee(method, k)];
+				if(callee==-1)
+					continue;
+				if(nnz==columnIndices.length)
+					columnIndices = Arrays.copyOf(columnIndices, 2*nnz);
+				columnIndices[nnz++] = callee;
+			}
+			rowOffsets[i+1] = nnz;
+		}
+		this.graph = new CallGraph(size, rowOffsets, columnIndices);
+	}
+	/**
+	 * <h1>getGraph</h1>
+	 * @return the calls between the methods of the sub-graph, which use sub-graph ids
+	 */
+	public CallGraph getGraph() {
+		return graph;
+	}
+	/**
+	 * <h1>size</h1>
+	 * @return the number of methods in the sub-graph
+	 */
+	public int size() {
+		return originalIds.length;
+	}
+	/**
+	 * <h1>getOriginalId</h1>
+	 * @param id a sub-graph method id
+	 * @return the id of the method in the original call graph
+	 */
+	public int getOriginalId(int id) {
+		return originalIds[id];
+	}
+	/**
+	 * <h1>getSubgraphId</h1>
+	 * @param originalId a method id of the original call graph
+	 * @return the id of the method in the sub-graph, or -1 if the method is not in the sub-graph
+	 */
+	public int getSubgraphId(int originalId) {
+		int id = Arrays.binarySearch(originalIds, originalId);
+		return id<0?-1:id;
+	}
+	/**
+	 * <h1>getOriginalIds</h1>
+	 * @return a sorted array with the original ids of all methods in the sub-graph
+	 */
+	public int[] getOriginalIds() {
+		return originalIds.clone();
+	}
+}
@@ -1,9 +1,16 @@
 package analysis.code;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 /**
  * <h1>ClassObject</h1>
@@ -16,30 +23,51 @@ public class ClassObject implements Serializable {
 	private String contribution;
 	private String content;
 	private transient ASTEntity rootEntity;
+	private transient char[] characters;
+	private static volatile ASTCache cache = null;
 	
 	/**
-	 * Constructor that loads the class from a specified file.
+	 * Constructor that loads the class from a specified UTF-8 file.
 	 * @param path the file path
-	 * @throws Exception
+	 * @throws IOException if the file cannot be read
+	 * @see #ClassObject(String, Charset)
 	 */
-	public ClassObject(String path) throws Exception {
-		StringBuilder contentBuilder = new StringBuilder();
-		try {
-			BufferedReader br = new BufferedReader(new FileReader(path));
-		    String line = br.readLine();
-		    while (line != null) {
-		    	contentBuilder.append(line);
-		    	contentBuilder.append(System.lineSeparator());
-		        line = br.readLine();
-		    }
-		    br.close();
-		}
-		catch(Exception e){
-			e.printStackTrace();
+	public ClassObject(String path) throws IOException {
+		this(path, StandardCharsets.UTF_8);
+	}
+	/**
+	 * Constructor that loads the class from a specified file. The file is read with a single NIO read and its original
+	 * line endings are kept, so that positions in the content match positions in the file.
+	 * @param path the file path
+	 * @param charset the charset of the file (malformed input is replaced)
+	 * @throws IOException if the file cannot be read
+	 */
+	public ClassObject(String path, Charset charset) throws IOException {
+		CharBuffer decoded = readCharacters(path, charset);
+		if(decoded.hasArray() && decoded.arrayOffset()==0 && decoded.position()==0 && decoded.remaining()==decoded.array().length)
+			characters = decoded.array();
+		else {
+			characters = new char[decoded.remaining()];
+			decoded.get(characters);
 		}
-		
 		contribution = (new File(path)).getName();
-		content = contentBuilder.toString();
+		content = new String(characters);
+	}
+	private static CharBuffer readCharacters(String path, Charset charset) throws IOException {
+		try(FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if(size>Integer.MAX_VALUE)
+				throw new IOException("File too large: "+path);
+			ByteBuffer bytes = ByteBuffer.allocate((int)size);
+			while(bytes.hasRemaining())
+				if(channel.read(bytes)==-1)
+					break;
+			bytes.flip();
+			return charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE)
+					.decode(bytes);
+		}
 	}
 	/**
 	 * Constructor that creates a custom class with specified contribution source and content.
@@ -89,6 +117,13 @@ public class ClassObject implements Serializable {
 	 */
 	public ASTEntity getRoot() {
 		if(rootEntity==null) {
+			ASTCache cache = ClassObject.cache;
+			if(cache!=null)
+				rootEntity = cache.load(this);
+			if(rootEntity!=null) {
+				characters = null;
+				return rootEntity;
+			}
 			try{
 				rootEntity = createASTBuilderFactory().extractStructure();
 			}
@@ -97,17 +132,42 @@ public class ClassObject implements Serializable {
 				//System.err.println(e.toString());
 				return null;
 			}
+			if(cache!=null)
+				cache.store(this, rootEntity);
 		}
 		return rootEntity;
 	}
+	/**
+	 * <h1>setCache</h1>
+	 * Sets an on-disk cache from which {@link #getRoot()} of all classes tries to load AST structures before parsing
+	 * their content, and in which newly parsed structures are stored.
+	 * @param cache the cache to use, or null to disable caching (default)
+	 */
+	public static void setCache(ASTCache cache) {
+		ClassObject.cache = cache;
+	}
 	/**
 	 * <h1>setContent</h1>
 	 * @param content the new content
 	 */
 	public void setContent(String content) {
 		this.content = content;
+		characters = null;
 		rootEntity = null;
 	}
+	/**
+	 * <h1>takeCharacters</h1>
+	 * Characters read from a file are handed over only once without being copied, after which
+	 * they are released and new copies of the content are returned.
+	 * @return the raw textual content as an array of characters
+	 */
+	char[] takeCharacters() {
+		char[] ret = characters;
+		characters = null;
+		if(ret==null)
+			ret = content.toCharArray();
+		return ret;
+	}
 	/**
 	 * <h1>createASTBuilderFactory</h1>
 	 * @return an ASTBuilderFactory, which can be used to modify source code or directly obtain low-level components of source syntax
@@ -117,7 +177,7 @@ public class ClassObject implements Serializable {
 	}
 	
 	public ASTEntity searchForSimilar(ASTEntity entity) {
-		for(Node child : getRoot().collapse()) {
+		for(Node child : getRoot().preorder()) {
 			if(child.getName().equals(entity.getName()) && child.getLevel()==entity.getLevel())
 				return (ASTEntity)child;
 		}
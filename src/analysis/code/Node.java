@@ -1,10 +1,27 @@
 package analysis.code;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
 
 public abstract class Node {
+	/**
+	 * <h1>Visitor</h1>
+	 * Visits nodes during {@link Node#traverse(Visitor)}.
+	 */
+	public interface Visitor {
+		/**
+		 * <h1>visit</h1>
+		 * @param node the visited node
+		 * @return false to stop the traversal, true to continue with the next node
+		 */
+		boolean visit(Node node);
+	}
 	protected Node parent;
 	protected ArrayList<Node> children = new ArrayList<Node>();
+	private int level = -1;
 	
 	/**
 	 * <h1>addChild</h1>
@@ -18,6 +35,9 @@ public abstract class Node {
 			throw new RuntimeException("Cannot make self a child");
 		child.parent = this;
 		children.add(child);
+		child.invalidateCache();
+		invalidateCache();
+		notifyChildrenChanged();
 		child.updateComments(child.getComments());
 	}
 	/**
@@ -30,6 +50,9 @@ public abstract class Node {
 			throw new RuntimeException("Child assigned to different parent");
 		child.parent = null;
 		children.remove(child);
+		child.invalidateCache();
+		invalidateCache();
+		notifyChildrenChanged();
 	}
 	/**
 	 * <h1>getChildren</h1>
@@ -47,25 +70,154 @@ public abstract class Node {
 	}
 	/**
 	 * <h1>collapse</h1>
-	 * Implementation is iterative.
+	 * Implementation is iterative. Use {@link #preorder()} or {@link #traverse(Visitor)} to visit nodes without creating a list.
 	 * @return a list containing this entity and its children.
 	 */
 	final public ArrayList<Node> collapse() {
 		ArrayList<Node> list = new ArrayList<Node>();
-		list.add(this);
-		for(Node child : children) 
-			list.addAll(child.collapse());
+		for(Node node : preorder())
+			list.add(node);
 		return list;
 	}
+	/**
+	 * <h1>traverse</h1>
+	 * Visits this node and its descendants in preorder (i.e. in the same order as {@link #collapse()}) until the visitor stops the traversal.
+	 * @param visitor the visitor
+	 * @return false if the visitor stopped the traversal, true otherwise
+	 */
+	public final boolean traverse(Visitor visitor) {
+		if(!visitor.visit(this))
+			return false;
+		for(int i=0;i<children.size();i++)
+			if(!children.get(i).traverse(visitor))
+				return false;
+		return true;
+	}
+	/**
+	 * <h1>preorder</h1>
+	 * Iterates through this node and its descendants in the same order as {@link #collapse()}, without creating a list.
+	 * Nodes should not be added or removed during the iteration.
+	 * @return an iterable of this node and its descendants
+	 */
+	public final Iterable<Node> preorder() {
+		return preorder(null);
+	}
+	/**
+	 * <h1>preorder</h1>
+	 * Iterates through the nodes accepted by a filter among this node and its descendants, in the same order as {@link #collapse()}.
+	 * Nodes should not be added or removed during the iteration.
+	 * @param filter the filter of nodes to iterate through (null to iterate through all nodes)
+	 * @return an iterable of the accepted nodes
+	 */
+	protected final <T extends Node> Iterable<T> preorder(Predicate<Node> filter) {
+		return () -> new PreorderIterator<T>(this, filter);
+	}
+	/**
+	 * <h1>PreorderIterator</h1>
+	 * Moves between nodes through their parents, so that it only needs to keep the position of each node
+	 * on the current path among its siblings.
+	 */
+	private static class PreorderIterator<T extends Node> implements Iterator<T> {
+		private Predicate<Node> filter;
+		private int[] childIndexes = new int[8];
+		private int depth = 0;
+		private Node next;
+
+		public PreorderIterator(Node root, Predicate<Node> filter) {
+			this.filter = filter;
+			next = root;
+			if(filter!=null && !filter.test(root))
+				next = findNext(root);
+		}
+		private Node findNext(Node node) {
+			do {
+				node = step(node);
+			}
+			while(node!=null && filter!=null && !filter.test(node));
+			return node;
+		}
+		private Node step(Node node) {
+			if(!node.children.isEmpty()) {
+				if(depth==childIndexes.length)
+					childIndexes = Arrays.copyOf(childIndexes, 2*depth);
+				childIndexes[depth++] = 0;
+				return node.children.get(0);
+			}
+			while(depth>0) {
+				Node parent = node.parent;
+				int index = childIndexes[depth-1]+1;
+				if(index<parent.children.size()) {
+					childIndexes[depth-1] = index;
+					return parent.children.get(index);
+				}
+				depth--;
+				node = parent;
+			}
+			return null;
+		}
+		@Override
+		public boolean hasNext() {
+			return next!=null;
+		}
+		@SuppressWarnings("unchecked")
+		@Override
+		public T next() {
+			if(next==null)
+				throw new NoSuchElementException();
+			Node ret = next;
+			next = findNext(ret);
+			return (T)ret;
+		}
+	}
 	/**
 	 * <h1>getLevel</h1> 
+	 * The result is cached until the node or its parents are added to or removed from other nodes.
 	 * @return the number of parents until the top parent is reached
 	 */
 	public final int getLevel() {
-		int level = 0;
+		int ret = level;
+		if(ret<0)
+			level = ret = parent==null?0:parent.getLevel()+1;
+		return ret;
+	}
+	/**
+	 * <h1>invalidateCache</h1>
+	 * Clears values cached by this node and its descendants, which depend on their position in the tree.
+	 * Since computing cached values of a node also caches the values of its parents, descendants
+	 * of nodes without cached values do not need to be visited.
+	 */
+	protected final void invalidateCache() {
+		if(!clearCache())
+			return;
+		for(Node child : children)
+			child.invalidateCache();
+	}
+	/**
+	 * <h1>clearCache</h1>
+	 * Clears values cached by this node only. Subclasses that cache values depending on their position
+	 * in the tree should override this method.
+	 * @return whether any value was cached
+	 */
+	protected boolean clearCache() {
+		boolean cached = level>=0;
+		level = -1;
+		return cached;
+	}
+	/**
+	 * <h1>notifyChildrenChanged</h1>
+	 * Notifies this node and its parent that the children of this node have changed.
+	 */
+	private void notifyChildrenChanged() {
+		childrenChanged();
 		if(parent!=null)
-			level = parent.getLevel()+1;
-		return level;
+			parent.childrenChanged();
+	}
+	/**
+	 * <h1>childrenChanged</h1>
+	 * Called when children are added to or removed from this node or its children. Subclasses that cache values depending
+	 * on their children should override this method.
+	 */
+	protected void childrenChanged() {
 	}
 	public boolean isComparable(ASTEntity to) {
 		return getLevel()==to.getLevel();
@@ -0,0 +1,211 @@
+package analysis.code;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>ProjectWatcher</h1>
+ * This class keeps an {@link ASTProject} synchronized with the files of its directory while they change.
+ * File system events are collected until no new ones arrive for a given debounce period, after which only
+ * the changed <code>.java</code> files are parsed again with {@link ASTProject#reloadFile(String)} and an
+ * updated {@link CallGraph} is published to listeners.<br/>
+ * <b>Project updates take place in the watcher's thread while holding the project's lock, so other threads
+ * should also synchronize on the project while using it.</b> The latest call graph is immutable and can be
+ * obtained from any thread with {@link #getCallGraph()}.
+ * @author Manios Krasanakis
+ */
+public class ProjectWatcher implements Runnable, Closeable {
+	/**
+	 * <h1>Listener</h1>
+	 * Listeners are notified in the watcher's thread after each update of the project.
+	 */
+	public interface Listener {
+		void projectUpdated(ASTProject project, CallGraph callGraph);
+	}
+
+	private ASTProject project;
+	private long debounceMillis;
+	private WatchService watchService;
+	private HashMap<WatchKey, Path> directories = new HashMap<WatchKey, Path>();
+	private CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+	private volatile CallGraph callGraph;
+	private Thread thread;
+
+	/**
+	 * Constructor that starts watching the directory of a project. Call {@link #start()} to start processing file changes
+	 * in a background thread or {@link #run()} to process them in the current one.
+	 * @param project the project to keep updated
+	 * @param debounceMillis the number of milliseconds without file events after which changes are processed
+	 * @throws IOException if the project's directory cannot be watched
+	 */
+	public ProjectWatcher(ASTProject project, long debounceMillis) throws IOException {
+		this.project = project;
+		this.debounceMillis = debounceMillis;
+		Path root = Paths.get(project.getPath()).toAbsolutePath().normalize();
+		watchService = root.getFileSystem().newWatchService();
+		registerDirectories(root, null);
+		synchronized(project) {
+			callGraph = project.generateCallGraph();
+		}
+	}
+	/**
+	 * <h1>addListener</h1>
+	 * @param listener a listener to notify after each update of the project
+	 */
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+	/**
+	 * <h1>removeListener</h1>
+	 * @param listener a previously added listener
+	 */
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+	/**
+	 * <h1>getCallGraph</h1>
+	 * @return the call graph of the project after its latest update
+	 */
+	public CallGraph getCallGraph() {
+		return callGraph;
+	}
+	/**
+	 * <h1>start</h1>
+	 * Starts processing file changes in a background daemon thread.
+	 */
+	public synchronized void start() {
+		if(thread!=null)
+			throw new RuntimeException("Project watcher has already started");
+		thread = new Thread(this, "ProjectWatcher "+project.getPath());
+		thread.setDaemon(true);
+		thread.start();
+	}
+	/**
+	 * <h1>close</h1>
+	 * Stops watching files. Changes that have not been processed yet are discarded.
+	 */
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+	}
+	/**
+	 * <h1>run</h1>
+	 * Processes file changes until the watcher is closed or the thread is interrupted.
+	 */
+	@Override
+	public void run() {
+		try {
+			while(true) {
+				LinkedHashSet<String> changedFiles = new LinkedHashSet<String>();
+				WatchKey key = watchService.take();
+				while(key!=null) {
+					collectChanges(key, changedFiles);
+					key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+				}
+				if(changedFiles.isEmpty())
+					continue;
+				CallGraph updatedCallGraph;
+				synchronized(project) {
+					for(String file : changedFiles)
+						project.reloadFile(file);
+					updatedCallGraph = project.generateCallGraph();
+				}
+				callGraph = updatedCallGraph;
+				for(Listener listener : listeners) {
+					try {
+						listener.projectUpdated(project, updatedCallGraph);
+					}
+					catch(RuntimeException e) {
+						//a failing listener should not stop the watcher or prevent other listeners from being notified
+						System.err.println(listener+": "+e.toString());
+					}
+				}
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch(ClosedWatchServiceException e) {
+			//the watcher has been closed
+		}
+	}
+	/**
+	 * <h1>collectChanges</h1>
+	 * Adds the <code>.java</code> files affected by the events of a key to the given set and resets the key.
+	 * New directories are registered and all their files are considered changed. If events have been lost
+	 * or a directory can no longer be watched, all previously imported files under it are considered changed.
+	 */
+	private void collectChanges(WatchKey key, LinkedHashSet<String> changedFiles) {
+		Path directory = directories.get(key);
+		if(directory==null) {
+			key.cancel();
+			return;
+		}
+		for(WatchEvent<?> event : key.pollEvents()) {
+			if(event.kind()==StandardWatchEventKinds.OVERFLOW) {
+				addImportedFiles(directory, changedFiles);
+				changedFiles.addAll(ASTProject.listJavaFiles(directory.toString(), new ArrayList<String>()));
+				continue;
+			}
+			Path path = directory.resolve((Path)event.context());
+			if(event.kind()==StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+				registerDirectories(path, changedFiles);
+				changedFiles.addAll(ASTProject.listJavaFiles(path.toString(), new ArrayList<String>()));
+			}
+			else if(path.toString().endsWith(".java"))
+				changedFiles.add(path.toString());
+			else if(event.kind()==StandardWatchEventKinds.ENTRY_DELETE)
+				addImportedFiles(path, changedFiles);
+		}
+		if(!key.reset()) {
+			directories.remove(key);
+			addImportedFiles(directory, changedFiles);
+		}
+	}
+	private void addImportedFiles(Path directory, LinkedHashSet<String> changedFiles) {
+		String prefix = directory.toString()+File.separator;
+		ArrayList<String> importedFiles;
+		synchronized(project) {
+			importedFiles = project.getImportedFiles();
+		}
+		for(String file : importedFiles)
+			if(file.startsWith(prefix))
+				changedFiles.add(file);
+	}
+	/**
+	 * <h1>registerDirectories</h1>
+	 * Watches a directory and its sub-directories. If sub-directories cannot be watched, all their imported files
+	 * are added to the given set of changed files (if not null), so that they are removed from the project.
+	 */
+	private void registerDirectories(Path directory, LinkedHashSet<String> changedFiles) {
+		try {
+			WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+			directories.put(key, directory);
+		}
+		catch(IOException e) {
+			System.err.println(directory+": "+e.toString());
+			if(changedFiles!=null)
+				addImportedFiles(directory, changedFiles);
+			return;
+		}
+		File[] fList = directory.toFile().listFiles();
+		if(fList!=null)
+			for(File file : fList)
+				if(file.isDirectory())
+					registerDirectories(file.toPath(), changedFiles);
+	}
+}
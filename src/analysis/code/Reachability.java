@@ -0,0 +1,136 @@
+package analysis.code;
+
+import java.util.BitSet;
+
+/**
+ * <h1>Reachability</h1>
+ * This class finds the methods that can be reached from given ones in a {@link CallGraph}, by following either
+ * calls (forward slices) or callers (backward slices). Searches are breadth-first and keep visited methods in a
+ * {@link BitSet}, so that they run in time proportional to the number of methods and calls they reach.
+ * Found methods can be extracted from the call graph with {@link CallSubgraph}.
+ * @author Manios Krasanakis
+ */
+public class Reachability {
+	/**
+	 * Depth limit that does not restrict searches.
+	 */
+	public static final int UNLIMITED = -1;
+	private CallGraph graph;
+
+	/**
+	 * Constructor that searches a given call graph.
+	 * @param graph the call graph
+	 */
+	public Reachability(CallGraph graph) {
+		this.graph = graph;
+	}
+	/**
+	 * <h1>getForwardSlice</h1>
+	 * @param method a method id
+	 * @return the method and all methods it directly or indirectly calls
+	 */
+	public BitSet getForwardSlice(int method) {
+		return getSlice(new int[]{method}, true, UNLIMITED, null);
+	}
+	/**
+	 * <h1>getForwardSlice</h1>
+	 * @param method a method id
+	 * @param maxDepth the maximum number of calls between the method and the ones found
+	 * @return the method and the methods it calls through at most the given number of calls
+	 */
+	public BitSet getForwardSlice(int method, int maxDepth) {
+		return getSlice(new int[]{method}, true, maxDepth, null);
+	}
+	/**
+	 * <h1>getBackwardSlice</h1>
+	 * @param method a method id
+	 * @return the method and all methods that directly or indirectly call it
+	 */
+	public BitSet getBackwardSlice(int method) {
+		return getSlice(new int[]{method}, false, UNLIMITED, null);
+	}
+	/**
+	 * <h1>getBackwardSlice</h1>
+	 * @param method a method id
+	 * @param maxDepth the maximum number of calls between the methods found and the method
+	 * @return the method and the methods that call it through at most the given number of calls
+	 */
+	public BitSet getBackwardSlice(int method, int maxDepth) {
+		return getSlice(new int[]{method}, false, maxDepth, null);
+	}
+	/**
+	 * <h1>getSlice</h1>
+	 * Performs a breadth-first search from the given methods. Excluded methods are neither returned nor
+	 * searched through, which means that methods only reachable through them are also not returned.
+	 * @param sources the ids of methods to start from
+	 * @param forward true to follow calls, false to follow callers
+	 * @param maxDepth the maximum number of calls to follow from the sources, or {@link #UNLIMITED}
+	 * @param excluded the methods to exclude from the search, or null
+	 * @return the methods found, including the sources that are not excluded
+	 */
+	public BitSet getSlice(int[] sources, boolean forward, int maxDepth, BitSet excluded) {
+		int size = graph.size();
+		BitSet visited = new BitSet(size);
+		int[] queue = new int[size];
+		int head = 0;
+		int tail = 0;
+		for(int source : sources) {
+			if(source<0 || source>=size)
+				throw new RuntimeException("Invalid method id "+source);
+			if(!visited.get(source) && (excluded==null || !excluded.get(source))) {
+				visited.set(source);
+				queue[tail++] = source;
+			}
+		}
+		int depth = 0;
+		int depthEnd = tail;
+		while(head<tail) {
+			if(head==depthEnd) {
+				depth++;
+				depthEnd = tail;
+			}
+			if(maxDepth!=UNLIMITED && depth>=maxDepth)
+				break;
+			int method = queue[head++];
+			int degree = forward?graph.getOutDegree(method):graph.getInDegree(method);
+			for(int k=0;k<degree;k++) {
+				int next = forward?graph.getCallee(method, k):graph.getCaller(method, k);
+				if(!visited.get(next) && (excluded==null || !excluded.get(next))) {
+					visited.set(next);
+					queue[tail++] = next;
+				}
+			}
+		}
+		return visited;
+	}
+	/**
+	 * <h1>isReachable</h1>
+	 * Stops searching as soon as the target method is found.
+	 * @param from a method id
+	 * @param to a method id
+	 * @return whether the first method directly or indirectly calls the second one (or is the same method)
+	 */
+	public boolean isReachable(int from, int to) {
+		if(from==to)
+			return true;
+		BitSet visited = new BitSet(graph.size());
+		int[] queue = new int[graph.size()];
+		int head = 0;
+		int tail = 0;
+		visited.set(from);
+		queue[tail++] = from;
+		while(head<tail) {
+			int method = queue[head++];
+			for(int k=graph.getOutDegree(method)-1;k>=0;k--) {
+				int next = graph.getCallee(method, k);
+				if(next==to)
+					return true;
+				if(!visited.get(next)) {
+					visited.set(next);
+					queue[tail++] = next;
+				}
+			}
+		}
+		return false;
+	}
+}
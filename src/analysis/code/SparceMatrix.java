@@ -1,44 +1,274 @@
 package analysis.code;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map.Entry;
+import java.util.Arrays;
 
+/**
+ * <h1>SparceMatrix</h1>
+ * A square matrix that only stores its non-zero elements. Rows are indexed by the first coordinate of
+ * {@link #get(int, int)} and {@link #set(int, int, double)}, similarly to <code>double[x][y]</code>.
+ * Each row keeps its columns sorted in primitive arrays, so that no boxing takes place and matrix
+ * positions never need to be converted to a single index, which would overflow for large matrices.
+ * @author Manios Krasanakis
+ */
 public class SparceMatrix implements Serializable {
-	private static final long serialVersionUID = -7526411834318494492L;
+	private static final long serialVersionUID = -7526411834318494493L;
 	private int size = 0;
-	private HashMap<Integer, Double> contents = new HashMap<Integer, Double>();
-	
+	private transient int nonZeros = 0;
+	private transient int[] rowSizes;
+	private transient int[][] rowColumns;
+	private transient double[][] rowValues;
+
 	public SparceMatrix(int size) {
 		this.size = size;
+		createRows();
+	}
+	private void createRows() {
+		rowSizes = new int[size];
+		rowColumns = new int[size][];
+		rowValues = new double[size][];
 	}
 	public SparceMatrix copy() {
 		SparceMatrix ret = new SparceMatrix(size);
-		for(Entry<Integer, Double> content : contents.entrySet())
-			ret.contents.put(content.getKey(), content.getValue());
+		ret.nonZeros = nonZeros;
+		for(int x=0;x<size;x++)
+			if(rowSizes[x]!=0) {
+				ret.rowSizes[x] = rowSizes[x];
+				ret.rowColumns[x] = Arrays.copyOf(rowColumns[x], rowSizes[x]);
+				ret.rowValues[x] = Arrays.copyOf(rowValues[x], rowSizes[x]);
+			}
 		return ret;
 	}
 	public int size() {
 		return size;
 	}
-	protected int convertToIdx(int x, int y) {
+	protected void checkIndex(int x, int y) {
 		if(x<0 || y<0 || x>=size || y>=size)
 			throw new RuntimeException("Invalid matrix index");
-		return y*size+x;
+	}
+	/**
+	 * <h1>findInRow</h1>
+	 * @param x the row
+	 * @param y the column
+	 * @return the position of the column in the row's arrays, or <code>-(insertion point)-1</code> if it is not stored
+	 */
+	protected int findInRow(int x, int y) {
+		if(rowSizes[x]==0)
+			return -1;
+		return Arrays.binarySearch(rowColumns[x], 0, rowSizes[x], y);
 	}
 	public void set(int x, int y, double val) {
+		checkIndex(x, y);
+		int pos = findInRow(x, y);
+		if(pos>=0) {
+			if(val!=0)
+				rowValues[x][pos] = val;
+			else {
+				int rowSize = --rowSizes[x];
+				System.arraycopy(rowColumns[x], pos+1, rowColumns[x], pos, rowSize-pos);
+				System.arraycopy(rowValues[x], pos+1, rowValues[x], pos, rowSize-pos);
+				nonZeros--;
+			}
+		}
+		else if(val!=0) {
+			pos = -pos-1;
+			int rowSize = rowSizes[x];
+			if(rowColumns[x]==null) {
+				rowColumns[x] = new int[4];
+				rowValues[x] = new double[4];
+			}
+			else if(rowSize==rowColumns[x].length) {
+				int capacity = rowSize+(rowSize>>1)+1;
+				rowColumns[x] = Arrays.copyOf(rowColumns[x], capacity);
+				rowValues[x] = Arrays.copyOf(rowValues[x], capacity);
+			}
+			System.arraycopy(rowColumns[x], pos, rowColumns[x], pos+1, rowSize-pos);
+			System.arraycopy(rowValues[x], pos, rowValues[x], pos+1, rowSize-pos);
+			rowColumns[x][pos] = y;
+			rowValues[x][pos] = val;
+			rowSizes[x] = rowSize+1;
+			nonZeros++;
+		}
+	}
+	/**
+	 * <h1>setRow</h1>
+	 * Replaces all elements of a row with the same value at the given columns. This is faster than calling
+	 * {@link #set(int, int, double)} for each column and does not access other rows.
+	 * @param x the row
+	 * @param columns the columns of the row's non-zero elements (they can be unsorted and repeated)
+	 * @param val the value of the elements (zero clears the row)
+	 */
+	public void setRow(int x, int[] columns, double val) {
+		int[] sorted = Arrays.copyOf(columns, columns.length);
+		Arrays.sort(sorted);
+		int rowSize = 0;
+		for(int i=0;i<sorted.length;i++) {
+			checkIndex(x, sorted[i]);
+			if(rowSize==0 || sorted[rowSize-1]!=sorted[i])
+				sorted[rowSize++] = sorted[i];
+		}
 		if(val==0)
-			contents.remove(convertToIdx(x, y));
-		else
-			contents.put(convertToIdx(x, y), val);
+			rowSize = 0;
+		nonZeros += rowSize-rowSizes[x];
+		rowSizes[x] = rowSize;
+		rowColumns[x] = rowSize==0?null:sorted;
+		rowValues[x] = null;
+		if(rowSize!=0) {
+			rowValues[x] = new double[sorted.length];
+			Arrays.fill(rowValues[x], 0, rowSize, val);
+		}
 	}
 	public double get(int x, int y) {
-		Double ret = contents.get(convertToIdx(x, y));
-		if(ret==null)
+		checkIndex(x, y);
+		int pos = findInRow(x, y);
+		if(pos<0)
 			return 0;
-		return (double)ret;
+		return rowValues[x][pos];
 	}
 	public int countNonZeros() {
-		return contents.size();
+		return nonZeros;
+	}
+	/**
+	 * <h1>getRowSize</h1>
+	 * Can be used together with {@link #getRowColumn(int, int)} and {@link #getRowValue(int, int)} to iterate
+	 * through the non-zero elements of a row without creating new objects.
+	 * @param x the row
+	 * @return the number of non-zero elements in the row
+	 */
+	public int getRowSize(int x) {
+		return rowSizes[x];
+	}
+	/**
+	 * <h1>getRowColumn</h1>
+	 * @param x the row
+	 * @param k a number from 0 to the row size minus one
+	 * @return the column of the k-th non-zero element of the row (columns are sorted)
+	 */
+	public int getRowColumn(int x, int k) {
+		if(k<0 || k>=rowSizes[x])
+			throw new RuntimeException("Invalid row element");
+		return rowColumns[x][k];
+	}
+	/**
+	 * <h1>getRowValue</h1>
+	 * @param x the row
+	 * @param k a number from 0 to the row size minus one
+	 * @return the value of the k-th non-zero element of the row
+	 */
+	public double getRowValue(int x, int k) {
+		if(k<0 || k>=rowSizes[x])
+			throw new RuntimeException("Invalid row element");
+		return rowValues[x][k];
+	}
+	/**
+	 * <h1>getRowSum</h1>
+	 * @param x the row
+	 * @return the sum of the row's elements
+	 */
+	public double getRowSum(int x) {
+		double sum = 0;
+		for(int pos=0;pos<rowSizes[x];pos++)
+			sum += rowValues[x][pos];
+		return sum;
+	}
+	/**
+	 * <h1>multiply</h1>
+	 * @param vector a vector with {@link #size()} elements
+	 * @return the product of the matrix with the given vector
+	 */
+	public double[] multiply(double[] vector) {
+		double[] result = new double[size];
+		multiply(vector, result, 0, size);
+		return result;
+	}
+	/**
+	 * <h1>multiply</h1>
+	 * Calculates a range of rows of the product of the matrix with a vector. Different ranges can be
+	 * safely calculated by different threads, as long as the matrix is not modified.
+	 * @param vector a vector with {@link #size()} elements
+	 * @param result the vector in which to store the product
+	 * @param fromRow the first row to calculate
+	 * @param toRow the row after the last one to calculate
+	 */
+	public void multiply(double[] vector, double[] result, int fromRow, int toRow) {
+		if(vector.length!=size || result.length!=size)
+			throw new RuntimeException("Vector size should match matrix size");
+		for(int x=fromRow;x<toRow;x++) {
+			double sum = 0;
+			int[] columns = rowColumns[x];
+			double[] values = rowValues[x];
+			for(int pos=0;pos<rowSizes[x];pos++)
+				sum += values[pos]*vector[columns[pos]];
+			result[x] = sum;
+		}
+	}
+	/**
+	 * <h1>transpose</h1>
+	 * @return a new matrix that is the transpose of this one
+	 */
+	public SparceMatrix transpose() {
+		SparceMatrix ret = new SparceMatrix(size);
+		for(int x=0;x<size;x++)
+			for(int pos=0;pos<rowSizes[x];pos++)
+				ret.rowSizes[rowColumns[x][pos]]++;
+		for(int y=0;y<size;y++)
+			if(ret.rowSizes[y]!=0) {
+				ret.rowColumns[y] = new int[ret.rowSizes[y]];
+				ret.rowValues[y] = new double[ret.rowSizes[y]];
+				ret.rowSizes[y] = 0;
+			}
+		//rows are visited in order, so the columns of the transpose end up sorted
+		for(int x=0;x<size;x++)
+			for(int pos=0;pos<rowSizes[x];pos++) {
+				int y = rowColumns[x][pos];
+				int retPos = ret.rowSizes[y]++;
+				ret.rowColumns[y][retPos] = x;
+				ret.rowValues[y][retPos] = rowValues[x][pos];
+			}
+		ret.nonZeros = nonZeros;
+		return ret;
+	}
+	/**
+	 * <h1>normalizeRows</h1>
+	 * Divides the elements of each row with the row's sum, so that non-empty rows sum to one.
+	 * Rows with zero sum are left unchanged.
+	 */
+	public void normalizeRows() {
+		for(int x=0;x<size;x++) {
+			double sum = getRowSum(x);
+			if(sum!=0)
+				for(int pos=0;pos<rowSizes[x];pos++)
+					rowValues[x][pos] /= sum;
+		}
+	}
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		for(int x=0;x<size;x++) {
+			out.writeInt(rowSizes[x]);
+			for(int pos=0;pos<rowSizes[x];pos++) {
+				out.writeInt(rowColumns[x][pos]);
+				out.writeDouble(rowValues[x][pos]);
+			}
+		}
+	}
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		createRows();
+		for(int x=0;x<size;x++) {
+			int rowSize = in.readInt();
+			if(rowSize==0)
+				continue;
+			rowSizes[x] = rowSize;
+			rowColumns[x] = new int[rowSize];
+			rowValues[x] = new double[rowSize];
+			for(int pos=0;pos<rowSize;pos++) {
+				rowColumns[x][pos] = in.readInt();
+				rowValues[x][pos] = in.readDouble();
+			}
+			nonZeros += rowSize;
+		}
 	}
 }
@@ -0,0 +1,341 @@
+package analysis.code;
+
+/**
+ * <h1>StatementTree</h1>
+ * This class parses a statement once into a tree of parenthesized groups, in which each group keeps the
+ * sorted positions of its top-level operators, spaces, dots, commas and parentheses. Parts of the statement
+ * are then addressed with start and end offsets instead of substrings, so that looking up a top-level token
+ * within a part takes a binary search instead of scanning its text again.<br/>
+ * Found positions are the same as the ones that {@link CodeManipulation#topLevelIndexOf(String, char, int)}
+ * and {@link CodeManipulation#topLevelCountOf(String, char, int)} would find in the substring of the part, which
+ * means that a closing parenthesis without a matching opening one ends the group that contains it.
+ * @author Manios Krasanakis
+ */
+class StatementTree {
+	/**
+	 * Operators that split call texts into two operands, in order of priority.
+	 */
+	public static final String[] OPERATORS = {"->", ":", "?", "==", "<", ">", "&&", "||", "!=", "+", "-", "*", "/", "!"};
+	public static final int ARROW = 0;
+	public static final int COLON = 1;
+	public static final int QUESTION = 2;
+	public static final int EQUALS = 3;
+	public static final int LESS = 4;
+	public static final int GREATER = 5;
+	public static final int AND = 6;
+	public static final int OR = 7;
+	public static final int NOT_EQUALS = 8;
+	public static final int PLUS = 9;
+	public static final int MINUS = 10;
+	public static final int TIMES = 11;
+	public static final int DIVIDE = 12;
+	public static final int NOT = 13;
+	public static final int SPACE = 14;
+	public static final int DOT = 15;
+	public static final int COMMA = 16;
+	public static final int ASSIGN = 17;
+	public static final int OPENING = 18;
+	public static final int CLOSING = 19;
+	private static final int KINDS = 20;
+	private String text;
+	private int[] groups;
+	private int[] groupEnds;
+	private int[] closingCounts;
+	private int[] nextOpening;
+	private int[][] tokenOffsets;
+	private int[][] tokens;
+
+	/**
+	 * Constructor that parses a statement.
+	 * @param text the statement
+	 */
+	public StatementTree(String text) {
+		this.text = text;
+		int length = text.length();
+		groups = new int[length];
+		closingCounts = new int[length+1];
+		nextOpening = new int[length+1];
+		//assign each position to the innermost group that contains it
+		int[] parents = new int[length+1];
+		int[] closedParents = new int[length];
+		int nGroups = 1;
+		int group = 0;
+		parents[0] = -1;
+		for(int i=0;i<length;i++) {
+			char c = text.charAt(i);
+			groups[i] = group;
+			closedParents[i] = -1;
+			closingCounts[i+1] = closingCounts[i];
+			if(c=='(') {
+				parents[nGroups] = group;
+				group = nGroups++;
+			}
+			else if(c==')') {
+				closingCounts[i+1]++;
+				if(parents[group]!=-1) {
+					closedParents[i] = parents[group];
+					group = parents[group];
+				}
+				else {
+					//a closing parenthesis without a matching opening one starts a new top-level group
+					parents[nGroups] = -1;
+					group = nGroups++;
+				}
+			}
+		}
+		groupEnds = new int[nGroups];
+		for(int g=0;g<nGroups;g++)
+			groupEnds[g] = length;
+		nextOpening[length] = -1;
+		for(int i=length-1;i>=0;i--) {
+			char c = text.charAt(i);
+			nextOpening[i] = c=='('?i:nextOpening[i+1];
+			if(c==')')
+				groupEnds[groups[i]] = i;
+		}
+		//sort token positions by group and then by position
+		tokenOffsets = new int[KINDS][nGroups+1];
+		for(int i=0;i<length;i++)
+			forEachKind(i, closedParents[i], null);
+		tokens = new int[KINDS][];
+		for(int kind=0;kind<KINDS;kind++) {
+			int[] offsets = tokenOffsets[kind];
+			int sum = 0;
+			for(int g=0;g<=nGroups;g++) {
+				int count = offsets[g];
+				offsets[g] = sum;
+				sum += count;
+			}
+			tokens[kind] = new int[sum];
+		}
+		int[][] filled = new int[KINDS][];
+		for(int kind=0;kind<KINDS;kind++)
+			filled[kind] = tokenOffsets[kind].clone();
+		for(int i=0;i<length;i++)
+			forEachKind(i, closedParents[i], filled);
+	}
+	/**
+	 * Counts (if filled is null) or places (otherwise) the token kinds of the given position.
+	 */
+	private void forEachKind(int i, int closedParent, int[][] filled) {
+		char c = text.charAt(i);
+		char next = i+1<text.length()?text.charAt(i+1):0;
+		int group = groups[i];
+		switch(c) {
+			case '(':
+				addToken(OPENING, group, i, filled);
+				break;
+			case ')':
+				//as topLevelIndexOf(text, ')', pos), which finds both the group's end and the ends of its children
+				addToken(CLOSING, group, i, filled);
+				if(closedParent!=-1)
+					addToken(CLOSING, closedParent, i, filled);
+				break;
+			case '-':
+				if(next=='>')
+					addToken(ARROW, group, i, filled);
+				addToken(MINUS, group, i, filled);
+				break;
+			case ':':
+				addToken(COLON, group, i, filled);
+				break;
+			case '?':
+				addToken(QUESTION, group, i, filled);
+				break;
+			case '=':
+				if(next=='=')
+					addToken(EQUALS, group, i, filled);
+				addToken(ASSIGN, group, i, filled);
+				break;
+			case '<':
+				addToken(LESS, group, i, filled);
+				break;
+			case '>':
+				addToken(GREATER, group, i, filled);
+				break;
+			case '&':
+				if(next=='&')
+					addToken(AND, group, i, filled);
+				break;
+			case '|':
+				if(next=='|')
+					addToken(OR, group, i, filled);
+				break;
+			case '!':
+				if(next=='=')
+					addToken(NOT_EQUALS, group, i, filled);
+				addToken(NOT, group, i, filled);
+				break;
+			case '+':
+				addToken(PLUS, group, i, filled);
+				break;
+			case '*':
+				addToken(TIMES, group, i, filled);
+				break;
+			case '/':
+				addToken(DIVIDE, group, i, filled);
+				break;
+			case ' ':
+				addToken(SPACE, group, i, filled);
+				break;
+			case '.':
+				addToken(DOT, group, i, filled);
+				break;
+			case ',':
+				addToken(COMMA, group, i, filled);
+				break;
+		}
+	}
+	private void addToken(int kind, int group, int position, int[][] filled) {
+		if(filled==null)
+			tokenOffsets[kind][group]++;
+		else
+			tokens[kind][filled[kind][group]++] = position;
+	}
+	private static boolean isTwoCharacter(int kind) {
+		return kind==ARROW || kind==EQUALS || kind==AND || kind==OR || kind==NOT_EQUALS;
+	}
+	/**
+	 * <h1>getText</h1>
+	 * @return the parsed statement
+	 */
+	public String getText() {
+		return text;
+	}
+	/**
+	 * <h1>indexOf</h1>
+	 * @param kind a token kind, such as {@link #COMMA} or an index of {@link #OPERATORS}
+	 * @param start the start of a part of the statement
+	 * @param end the end of the part (exclusive)
+	 * @return the first top-level position of the token kind within the part, or -1 if there is none
+	 */
+	public int indexOf(int kind, int start, int end) {
+		if(start>=end)
+			return -1;
+		int group = groups[start];
+		int index = lowerBound(tokens[kind], tokenOffsets[kind][group], tokenOffsets[kind][group+1], start);
+		if(index==tokenOffsets[kind][group+1])
+			return -1;
+		int position = tokens[kind][index];
+		if(position>=end || (isTwoCharacter(kind) && position+1>=end))
+			return -1;
+		return position;
+	}
+	/**
+	 * <h1>countOf</h1>
+	 * @param kind a token kind, such as {@link #COMMA}
+	 * @param start the start of a part of the statement
+	 * @param end the end of the part (exclusive)
+	 * @return the number of top-level positions of the token kind within the part
+	 */
+	public int countOf(int kind, int start, int end) {
+		if(start>=end)
+			return 0;
+		int group = groups[start];
+		int low = tokenOffsets[kind][group];
+		int high = tokenOffsets[kind][group+1];
+		return lowerBound(tokens[kind], low, high, end)-lowerBound(tokens[kind], low, high, start);
+	}
+	private static int lowerBound(int[] positions, int low, int high, int value) {
+		while(low<high) {
+			int mid = (low+high)>>>1;
+			if(positions[mid]<value)
+				low = mid+1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+	/**
+	 * <h1>getOperator</h1>
+	 * @param start the start of a part of the statement
+	 * @param end the end of the part (exclusive)
+	 * @return the index in {@link #OPERATORS} of the top-level operator with the highest priority within the part,
+	 * or -1 if there is none
+	 */
+	public int getOperator(int start, int end) {
+		for(int operator=0;operator<OPERATORS.length;operator++)
+			if(indexOf(operator, start, end)!=-1)
+				return operator;
+		return -1;
+	}
+	/**
+	 * <h1>getOpeningParenthesis</h1>
+	 * @param start the start of a part of the statement
+	 * @param end the end of the part (exclusive)
+	 * @return the position of the first top-level opening parenthesis within the part, or the last position of
+	 * the part if there is none
+	 */
+	public int getOpeningParenthesis(int start, int end) {
+		int opening = indexOf(OPENING, start, end);
+		return opening==-1?end-1:opening;
+	}
+	/**
+	 * <h1>getClosingParenthesis</h1>
+	 * @param start the start of a part of the statement
+	 * @param end the end of the part (exclusive)
+	 * @return the position of the parenthesis that closes {@link #getOpeningParenthesis(int, int)} within the part,
+	 * or -1 if there is none
+	 */
+	public int getClosingParenthesis(int start, int end) {
+		int opening = indexOf(OPENING, start, end);
+		if(opening==-1)
+			return start<end && text.charAt(end-1)==')'?end-1:-1;
+		if(opening+1>=text.length())
+			return -1;
+		int closing = groupEnds[groups[opening+1]];
+		return closing<end?closing:-1;
+	}
+	/**
+	 * <h1>indexOfAnyOpening</h1>
+	 * @param start the start of a part of the statement
+	 * @param end the end of the part (exclusive)
+	 * @return the position of the first opening parenthesis within the part at any level, or -1 if there is none
+	 */
+	public int indexOfAnyOpening(int start, int end) {
+		if(start>=end)
+			return -1;
+		int opening = nextOpening[start];
+		return opening<end?opening:-1;
+	}
+	/**
+	 * <h1>containsClosing</h1>
+	 * @param start the start of a part of the statement
+	 * @param end the end of the part (exclusive)
+	 * @return whether the part contains a closing parenthesis at any level
+	 */
+	public boolean containsClosing(int start, int end) {
+		return start<end && closingCounts[end]>closingCounts[start];
+	}
+	/**
+	 * <h1>trimStart</h1>
+	 * @param start the start of a part of the statement
+	 * @param end the end of the part (exclusive)
+	 * @return the start of the part after skipping leading whitespace, as in {@link String#trim()}
+	 */
+	public int trimStart(int start, int end) {
+		while(start<end && text.charAt(start)<=' ')
+			start++;
+		return start;
+	}
+	/**
+	 * <h1>trimEnd</h1>
+	 * @param start the start of a part of the statement
+	 * @param end the end of the part (exclusive)
+	 * @return the end of the part after skipping trailing whitespace, as in {@link String#trim()}
+	 */
+	public int trimEnd(int start, int end) {
+		while(end>start && text.charAt(end-1)<=' ')
+			end--;
+		return end;
+	}
+	/**
+	 * <h1>isBlank</h1>
+	 * @param start the start of a part of the statement
+	 * @param end the end of the part (exclusive)
+	 * @return whether the part contains only whitespace
+	 */
+	public boolean isBlank(int start, int end) {
+		return trimStart(start, end)>=end;
+	}
+}
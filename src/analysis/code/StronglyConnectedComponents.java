@@ -0,0 +1,216 @@
+package analysis.code;
+
+import java.util.Arrays;
+
+/**
+ * <h1>StronglyConnectedComponents</h1>
+ * This class finds the strongly connected components of a call graph, i.e. the largest groups of methods
+ * that directly or indirectly call each other, with an iterative version of Tarjan's algorithm that does not
+ * overflow the stack for deep call chains. It runs in time proportional to the number of methods and calls.<br/>
+ * Component ids follow a topological order of the condensed graph, in which every call between different
+ * components goes from a component with a larger id to one with a smaller id. Hence, components can be processed
+ * in ascending id order when methods should be processed after the ones they call.
+ * @author Manios Krasanakis
+ */
+public class StronglyConnectedComponents {
+	private int[] components;
+	private int[] memberOffsets;
+	private int[] members;
+	private CallGraph condensation;
+	private int[] levels;
+
+	/**
+	 * Constructor that finds the components of a sparse matrix call graph, such as the ones created by
+	 * {@link ASTProjectImporter#createCallGraph()}, in which non-zero elements <code>(x, y)</code>
+	 * denote that method <code>x</code> calls method <code>y</code>.
+	 * @param callGraph the call graph
+	 */
+	public StronglyConnectedComponents(SparceMatrix callGraph) {
+		this(toCallGraph(callGraph));
+	}
+	/**
+	 * Constructor that finds the components of a call graph.
+	 * @param callGraph the call graph
+	 */
+	public StronglyConnectedComponents(CallGraph callGraph) {
+		int size = callGraph.size();
+		components = new int[size];
+		Arrays.fill(components, -1);
+		int componentCount = findComponents(callGraph);
+		memberOffsets = new int[componentCount+1];
+		for(int method=0;method<size;method++)
+			memberOffsets[components[method]+1]++;
+		for(int component=0;component<componentCount;component++)
+			memberOffsets[component+1] += memberOffsets[component];
+		members = new int[size];
+		int[] fill = Arrays.copyOf(memberOffsets, componentCount);
+		for(int method=0;method<size;method++)
+			members[fill[components[method]]++] = method;
+		createCondensation(callGraph, componentCount);
+	}
+	private static CallGraph toCallGraph(SparceMatrix callGraph) {
+		int size = callGraph.size();
+		int[] rowOffsets = new int[size+1];
+		int[] columnIndices = new int[callGraph.countNonZeros()];
+		int nnz = 0;
+		for(int x=0;x<size;x++) {
+			for(int k=0;k<callGraph.getRowSize(x);k++)
+				columnIndices[nnz++] = callGraph.getRowColumn(x, k);
+			rowOffsets[x+1] = nnz;
+		}
+		return new CallGraph(size, rowOffsets, columnIndices);
+	}
+	/**
+	 * <h1>findComponents</h1>
+	 * Performs Tarjan's algorithm with explicit stacks of visited methods and of the next call to follow from each of them.
+	 * Components are numbered in the order they are completed, which is a reverse topological order.
+	 * @return the number of components
+	 */
+	private int findComponents(CallGraph callGraph) {
+		int size = callGraph.size();
+		int[] index = new int[size];
+		Arrays.fill(index, -1);
+		int[] lowLink = new int[size];
+		int[] stack = new int[size];
+		int stackSize = 0;
+		int[] path = new int[size];
+		int[] nextCall = new int[size];
+		int pathSize = 0;
+		int visited = 0;
+		int componentCount = 0;
+		for(int root=0;root<size;root++) {
+			if(index[root]!=-1)
+				continue;
+			index[root] = lowLink[root] = visited++;
+			stack[stackSize++] = root;
+			path[pathSize] = root;
+			nextCall[pathSize++] = 0;
+			while(pathSize>0) {
+				int method = path[pathSize-1];
+				int k = nextCall[pathSize-1];
+				if(k<callGraph.getOutDegree(method)) {
+					nextCall[pathSize-1]++;
+					int callee = callGraph.getCallee(method, k);
+					if(index[callee]==-1) {
+						index[callee] = lowLink[callee] = visited++;
+						stack[stackSize++] = callee;
+						path[pathSize] = callee;
+						nextCall[pathSize++] = 0;
+					}
+					else if(components[callee]==-1 && index[callee]<lowLink[method])
+						//visited methods without a component are still in the stack
+						lowLink[method] = index[callee];
+					continue;
+				}
+				pathSize--;
+				if(lowLink[method]==index[method]) {
+					int member;
+					do {
+						member = stack[--stackSize];
+						components[member] = componentCount;
+					} while(member!=method);
+					componentCount++;
+				}
+				if(pathSize>0 && lowLink[method]<lowLink[path[pathSize-1]])
+					lowLink[path[pathSize-1]] = lowLink[method];
+			}
+		}
+		return componentCount;
+	}
+	/**
+	 * <h1>createCondensation</h1>
+	 * Creates the graph of calls between components and the topological level of each component.
+	 */
+	private void createCondensation(CallGraph callGraph, int componentCount) {
+		int[] rowOffsets = new int[componentCount+1];
+		int[] columnIndices = new int[callGraph.countEdges()];
+		int nnz = 0;
+		for(int component=0;component<componentCount;component++) {
+			for(int pos=memberOffsets[component];pos<memberOffsets[component+1];pos++) {
+				int method = members[pos];
+				for(int k=0;k<callGraph.getOutDegree(method);k++) {
+					int calleeComponent = components[callGraph.getCallee(method, k)];
+					if(calleeComponent!=component)
+						columnIndices[nnz++] = calleeComponent;
+				}
+			}
+			rowOffsets[component+1] = nnz;
+		}
+		condensation = new CallGraph(componentCount, rowOffsets, columnIndices);
+		levels = new int[componentCount];
+		for(int component=0;component<componentCount;component++)
+			for(int k=0;k<condensation.getOutDegree(component);k++)
+				levels[component] = Math.max(levels[component], levels[condensation.getCallee(component, k)]+1);
+	}
+	/**
+	 * <h1>countComponents</h1>
+	 * @return the number of strongly connected components
+	 */
+	public int countComponents() {
+		return levels.length;
+	}
+	/**
+	 * <h1>getComponent</h1>
+	 * @param method a method id
+	 * @return the id of the method's component
+	 */
+	public int getComponent(int method) {
+		return components[method];
+	}
+	/**
+	 * <h1>getComponents</h1>
+	 * @return an array with the component id of each method
+	 */
+	public int[] getComponents() {
+		return components.clone();
+	}
+	/**
+	 * <h1>getComponentSize</h1>
+	 * @param component a component id
+	 * @return the number of methods in the component
+	 */
+	public int getComponentSize(int component) {
+		return memberOffsets[component+1]-memberOffsets[component];
+	}
+	/**
+	 * <h1>getMethods</h1>
+	 * @param component a component id
+	 * @return a sorted array with the ids of methods in the component
+	 */
+	public int[] getMethods(int component) {
+		return Arrays.copyOfRange(members, memberOffsets[component], memberOffsets[component+1]);
+	}
+	/**
+	 * <h1>isRecursive</h1>
+	 * Self-calls are not considered, since call graphs of projects mark every method as calling itself.
+	 * @param component a component id
+	 * @return whether the component contains more than one method, i.e. whether its methods are mutually recursive
+	 */
+	public boolean isRecursive(int component) {
+		return getComponentSize(component)>1;
+	}
+	/**
+	 * <h1>getCondensation</h1>
+	 * @return the directed acyclic graph of calls between different components, whose method ids are component ids
+	 */
+	public CallGraph getCondensation() {
+		return condensation;
+	}
+	/**
+	 * <h1>getLevel</h1>
+	 * @param component a component id
+	 * @return the length of the longest chain of calls from the component to components that call no others (which have level zero)
+	 */
+	public int getLevel(int component) {
+		return levels[component];
+	}
+	/**
+	 * <h1>getLevels</h1>
+	 * Components of the same level do not call each other, and only call components of lower levels.
+	 * @return an array with the level of each component
+	 * @see #getLevel(int)
+	 */
+	public int[] getLevels() {
+		return levels.clone();
+	}
+}
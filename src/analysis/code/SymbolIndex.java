@@ -0,0 +1,204 @@
+package analysis.code;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * <h1>SymbolIndex</h1>
+ * This class indexes qualified names, such as {@link ASTEntity#getStackTrace()} of project methods, to support fast
+ * exact, suffix and substring searches. Names are sorted both normally and from their end for exact and suffix searches,
+ * while substring searches only check names containing all character trigrams of the query.
+ * All searches return the ids of matching names (i.e. their positions in the indexed list) in ascending order.
+ * @author Manios Krasanakis
+ */
+public class SymbolIndex {
+	private static final int[] EMPTY = new int[0];
+	private String[] names;
+	private int[] sorted;
+	private int[] sortedFromEnd;
+	private HashMap<Long, int[]> trigrams = new HashMap<Long, int[]>();
+
+	/**
+	 * Constructor that indexes a list of names.
+	 * @param names the names to index
+	 */
+	public SymbolIndex(List<String> names) {
+		this.names = names.toArray(new String[names.size()]);
+		String[] indexed = this.names;
+		sorted = sortIds(Comparator.comparing((Integer id) -> indexed[id]));
+		sortedFromEnd = sortIds((id1, id2) -> compareFromEnd(indexed[id1], indexed[id2], Integer.MAX_VALUE));
+		HashMap<Long, Posting> postings = new HashMap<Long, Posting>();
+		for(int id=0;id<this.names.length;id++) {
+			String name = this.names[id];
+			for(int pos=0;pos+3<=name.length();pos++) {
+				Long trigram = getTrigram(name, pos);
+				Posting posting = postings.get(trigram);
+				if(posting==null)
+					postings.put(trigram, posting = new Posting());
+				posting.add(id);
+			}
+		}
+		for(Entry<Long, Posting> posting : postings.entrySet())
+			trigrams.put(posting.getKey(), Arrays.copyOf(posting.getValue().ids, posting.getValue().size));
+	}
+	/**
+	 * <h1>Posting</h1>
+	 * The ids of names containing a trigram, which grow while building the index.
+	 */
+	private static class Posting {
+		private int[] ids = new int[4];
+		private int size = 0;
+		public void add(int id) {
+			if(size!=0 && ids[size-1]==id)
+				return;
+			if(size==ids.length)
+				ids = Arrays.copyOf(ids, 2*size);
+			ids[size++] = id;
+		}
+	}
+	private int[] sortIds(Comparator<Integer> comparator) {
+		Integer[] ids = new Integer[names.length];
+		for(int id=0;id<names.length;id++)
+			ids[id] = id;
+		Arrays.sort(ids, comparator);
+		int[] ret = new int[names.length];
+		for(int i=0;i<names.length;i++)
+			ret[i] = ids[i];
+		return ret;
+	}
+	private static long getTrigram(String text, int pos) {
+		return ((long)text.charAt(pos)<<32) | ((long)text.charAt(pos+1)<<16) | text.charAt(pos+2);
+	}
+	/**
+	 * <h1>compareFromEnd</h1>
+	 * Compares strings as if they were reversed, considering at most a given number of characters.
+	 */
+	private static int compareFromEnd(String text1, String text2, int maxLength) {
+		int length = Math.min(maxLength, Math.min(text1.length(), text2.length()));
+		for(int i=1;i<=length;i++) {
+			char c1 = text1.charAt(text1.length()-i);
+			char c2 = text2.charAt(text2.length()-i);
+			if(c1!=c2)
+				return c1-c2;
+		}
+		return Math.min(maxLength, text1.length())-Math.min(maxLength, text2.length());
+	}
+	/**
+	 * <h1>size</h1>
+	 * @return the number of indexed names
+	 */
+	public int size() {
+		return names.length;
+	}
+	/**
+	 * <h1>getName</h1>
+	 * @param id the id of an indexed name
+	 * @return the indexed name
+	 */
+	public String getName(int id) {
+		return names[id];
+	}
+	/**
+	 * <h1>findExact</h1>
+	 * @param query the name to search for
+	 * @return the ids of names equal to the query
+	 */
+	public int[] findExact(String query) {
+		int low = 0;
+		int high = sorted.length;
+		while(low<high) {
+			int mid = (low+high)>>>1;
+			if(names[sorted[mid]].compareTo(query)<0)
+				low = mid+1;
+			else
+				high = mid;
+		}
+		int end = low;
+		while(end<sorted.length && names[sorted[end]].equals(query))
+			end++;
+		int[] ret = Arrays.copyOfRange(sorted, low, end);
+		Arrays.sort(ret);
+		return ret;
+	}
+	/**
+	 * <h1>findSuffix</h1>
+	 * @param query the suffix to search for
+	 * @return the ids of names ending with the query
+	 */
+	public int[] findSuffix(String query) {
+		int low = 0;
+		int high = sortedFromEnd.length;
+		while(low<high) {
+			int mid = (low+high)>>>1;
+			if(compareFromEnd(names[sortedFromEnd[mid]], query, Integer.MAX_VALUE)<0)
+				low = mid+1;
+			else
+				high = mid;
+		}
+		int end = low;
+		while(end<sortedFromEnd.length && names[sortedFromEnd[end]].endsWith(query))
+			end++;
+		int[] ret = Arrays.copyOfRange(sortedFromEnd, low, end);
+		Arrays.sort(ret);
+		return ret;
+	}
+	/**
+	 * <h1>findSubstring</h1>
+	 * @param query the text to search for
+	 * @return the ids of names containing the query
+	 */
+	public int[] findSubstring(String query) {
+		return findSubstring(query, Integer.MAX_VALUE);
+	}
+	/**
+	 * <h1>findFirstSubstring</h1>
+	 * @param query the text to search for
+	 * @return the smallest id of names containing the query, or -1 if no name contains it
+	 */
+	public int findFirstSubstring(String query) {
+		int[] ret = findSubstring(query, 1);
+		return ret.length==0?-1:ret[0];
+	}
+	private int[] findSubstring(String query, int maxResults) {
+		int[] candidates = null;
+		if(query.length()>=3) {
+			//intersect the ids of names containing each trigram, starting from the least frequent ones
+			int[][] postings = new int[query.length()-2][];
+			for(int pos=0;pos+3<=query.length();pos++) {
+				postings[pos] = trigrams.get(getTrigram(query, pos));
+				if(postings[pos]==null)
+					return EMPTY;
+			}
+			Arrays.sort(postings, Comparator.comparingInt((int[] posting) -> posting.length));
+			candidates = postings[0];
+			for(int i=1;i<postings.length && candidates.length>1;i++)
+				candidates = intersect(candidates, postings[i]);
+		}
+		int[] ret = new int[Math.min(maxResults, candidates==null?names.length:candidates.length)];
+		int size = 0;
+		int count = candidates==null?names.length:candidates.length;
+		for(int i=0;i<count && size<ret.length;i++) {
+			int id = candidates==null?i:candidates[i];
+			if(names[id].contains(query))
+				ret[size++] = id;
+		}
+		return size==ret.length?ret:Arrays.copyOf(ret, size);
+	}
+	private static int[] intersect(int[] sorted1, int[] sorted2) {
+		int[] ret = new int[Math.min(sorted1.length, sorted2.length)];
+		int size = 0;
+		int pos2 = 0;
+		for(int pos1=0;pos1<sorted1.length;pos1++) {
+			while(pos2<sorted2.length && sorted2[pos2]<sorted1[pos1])
+				pos2++;
+			if(pos2==sorted2.length)
+				break;
+			if(sorted2[pos2]==sorted1[pos1])
+				ret[size++] = sorted1[pos1];
+		}
+		return Arrays.copyOf(ret, size);
+	}
+}
@@ -1,6 +1,11 @@
 package analysis.compiled;
 
+import org.apache.bcel.Const;
+import org.apache.bcel.classfile.Code;
 import org.apache.bcel.classfile.Constant;
+import org.apache.bcel.classfile.ConstantCP;
+import org.apache.bcel.classfile.ConstantClass;
+import org.apache.bcel.classfile.ConstantNameAndType;
 import org.apache.bcel.classfile.ConstantPool;
 import org.apache.bcel.classfile.EmptyVisitor;
 import org.apache.bcel.classfile.JavaClass;
@@ -10,18 +15,67 @@ import org.apache.bcel.generic.MethodGen;
 
 /**
  * The simplest of class visitors, invokes the method visitor class for each
- * method found.
+ * method found.<br/>
+ * By default, methods are visited with a fast scan that decodes the bytes of their code directly
+ * and resolves invoked methods from a table of the constant pool, which registers the same calls
+ * as {@link MethodVisitor} without creating a {@link MethodGen} and its instruction list for each method.
  */
 public class ClassVisitor extends EmptyVisitor {
+    private static final byte[] INSTRUCTION_LENGTHS = new byte[256];
+    static {
+        for (int opcode = 0; opcode < INSTRUCTION_LENGTHS.length; opcode++)
+            INSTRUCTION_LENGTHS[opcode] = 1;
+        for (int opcode = Const.ILOAD; opcode <= Const.ALOAD; opcode++)
+            INSTRUCTION_LENGTHS[opcode] = 2;
+        for (int opcode = Const.ISTORE; opcode <= Const.ASTORE; opcode++)
+            INSTRUCTION_LENGTHS[opcode] = 2;
+        for (int opcode = Const.IFEQ; opcode <= Const.JSR; opcode++)
+            INSTRUCTION_LENGTHS[opcode] = 3;
+        for (int opcode = Const.GETSTATIC; opcode <= Const.INVOKESTATIC; opcode++)
+            INSTRUCTION_LENGTHS[opcode] = 3;
+        INSTRUCTION_LENGTHS[Const.BIPUSH] = 2;
+        INSTRUCTION_LENGTHS[Const.SIPUSH] = 3;
+        INSTRUCTION_LENGTHS[Const.LDC] = 2;
+        INSTRUCTION_LENGTHS[Const.LDC_W] = 3;
+        INSTRUCTION_LENGTHS[Const.LDC2_W] = 3;
+        INSTRUCTION_LENGTHS[Const.IINC] = 3;
+        INSTRUCTION_LENGTHS[Const.RET] = 2;
+        INSTRUCTION_LENGTHS[Const.INVOKEINTERFACE] = 5;
+        INSTRUCTION_LENGTHS[Const.INVOKEDYNAMIC] = 5;
+        INSTRUCTION_LENGTHS[Const.NEW] = 3;
+        INSTRUCTION_LENGTHS[Const.NEWARRAY] = 2;
+        INSTRUCTION_LENGTHS[Const.ANEWARRAY] = 3;
+        INSTRUCTION_LENGTHS[Const.CHECKCAST] = 3;
+        INSTRUCTION_LENGTHS[Const.INSTANCEOF] = 3;
+        INSTRUCTION_LENGTHS[Const.MULTIANEWARRAY] = 4;
+        INSTRUCTION_LENGTHS[Const.IFNULL] = 3;
+        INSTRUCTION_LENGTHS[Const.IFNONNULL] = 3;
+        INSTRUCTION_LENGTHS[Const.GOTO_W] = 5;
+        INSTRUCTION_LENGTHS[Const.JSR_W] = 5;
+    }
     private JavaClass clazz;
     private ConstantPoolGen constants;
+    private int[] signatureIndexes;
+    private String[] invokedSignatures;
+    private boolean fastScan;
     //private String classReferenceFormat;
     private CompiledProjectImporter project;
     
     public ClassVisitor(JavaClass jc, CompiledProjectImporter project) {
+        this(jc, project, true);
+    }
+
+    /**
+     * Constructor that can select how methods are visited.
+     * @param fastScan true to scan the code of methods directly, false to visit their instructions with a {@link MethodVisitor}
+     */
+    public ClassVisitor(JavaClass jc, CompiledProjectImporter project, boolean fastScan) {
     	this.project = project;
+    	this.fastScan = fastScan;
         clazz = jc;
-        constants = new ConstantPoolGen(clazz.getConstantPool());
+        if (!fastScan)
+            constants = new ConstantPoolGen(clazz.getConstantPool());
+        signatureIndexes = new int[clazz.getConstantPool().getLength()];
         //classReferenceFormat = "class " + clazz.getClassName() + " %s";
     }
 
@@ -34,7 +88,12 @@ public class ClassVisitor extends EmptyVisitor {
             methods[i].accept(this);
     }
 
+    /**
+     * Decodes the signatures of methods referenced by the constant pool, in the same format as {@link MethodVisitor}.
+     */
     public void visitConstantPool(ConstantPool constantPool) {
+        if (fastScan)
+            invokedSignatures = new String[constantPool.getLength()];
         for (int i = 0; i < constantPool.getLength(); i++) {
             Constant constant = constantPool.getConstant(i);
             if (constant == null)
@@ -43,15 +102,137 @@ public class ClassVisitor extends EmptyVisitor {
                 String referencedClass = constantPool.constantToString(constant);
                 System.out.println(String.format(classReferenceFormat, referencedClass));
             }*/
+            if (fastScan && (constant.getTag() == Const.CONSTANT_Methodref || constant.getTag() == Const.CONSTANT_InterfaceMethodref || constant.getTag() == Const.CONSTANT_InvokeDynamic)) {
+                ConstantCP reference = (ConstantCP) constant;
+                ConstantNameAndType nameAndType = (ConstantNameAndType) constantPool.getConstant(reference.getNameAndTypeIndex(), Const.CONSTANT_NameAndType);
+                String className;
+                if (constant.getTag() == Const.CONSTANT_InvokeDynamic)
+                    className = "java.lang.Object";
+                else {
+                    String classDescriptor = ((ConstantClass) constantPool.getConstant(reference.getClassIndex(), Const.CONSTANT_Class)).getBytes(constantPool);
+                    className = classDescriptor.startsWith("[") ? appendType(new StringBuilder(), classDescriptor, 0).toString() : classDescriptor.replace('/', '.');
+                }
+                invokedSignatures[i] = signature(className, nameAndType.getName(constantPool), nameAndType.getSignature(constantPool));
+            }
         }
     }
 
     public void visitMethod(Method method) {
+        if (fastScan) {
+            scanMethod(method);
+            return;
+        }
         MethodGen mg = new MethodGen(method, clazz.getClassName(), constants);
-        MethodVisitor visitor = new MethodVisitor(mg, clazz, project);
+        MethodVisitor visitor = new MethodVisitor(mg, clazz, project, signatureIndexes);
         visitor.start(); 
     }
 
+    /**
+     * Registers the calls of a method by finding the invoke instructions in the bytes of its code.
+     */
+    private void scanMethod(Method method) {
+        if (method.isAbstract() || method.isNative())
+            return;
+        Code code = method.getCode();
+        if (code == null)
+            return;
+        byte[] bytes = code.getCode();
+        int formatIndex = -1;
+        int pc = 0;
+        while (pc < bytes.length) {
+            int opcode = bytes[pc] & 0xFF;
+            if (opcode >= Const.INVOKEVIRTUAL && opcode <= Const.INVOKEDYNAMIC) {
+                int index = ((bytes[pc + 1] & 0xFF) << 8) | (bytes[pc + 2] & 0xFF);
+                if (formatIndex == -1)
+                    formatIndex = project.getMethodIndex(signature(clazz.getClassName(), method.getName(), method.getSignature()));
+                int signatureIndex = signatureIndexes[index] - 1;
+                if (signatureIndex == -1) {
+                    signatureIndex = project.getMethodIndex(invokedSignatures[index]);
+                    signatureIndexes[index] = signatureIndex + 1;
+                }
+                project.registerVisit(formatIndex, signatureIndex);
+            }
+            if (opcode == Const.TABLESWITCH) {
+                int offsets = (pc + 4) & ~3;
+                pc = offsets + 12 + 4 * (readInt(bytes, offsets + 8) - readInt(bytes, offsets + 4) + 1);
+            }
+            else if (opcode == Const.LOOKUPSWITCH) {
+                int offsets = (pc + 4) & ~3;
+                pc = offsets + 8 + 8 * readInt(bytes, offsets + 4);
+            }
+            else if (opcode == Const.WIDE)
+                pc += (bytes[pc + 1] & 0xFF) == Const.IINC ? 6 : 4;
+            else
+                pc += INSTRUCTION_LENGTHS[opcode];
+        }
+    }
+
+    private static int readInt(byte[] bytes, int pos) {
+        return ((bytes[pos] & 0xFF) << 24) | ((bytes[pos + 1] & 0xFF) << 16) | ((bytes[pos + 2] & 0xFF) << 8) | (bytes[pos + 3] & 0xFF);
+    }
+
+    /**
+     * Creates a method signature from a method descriptor, such as <code>(ILjava/lang/String;)V</code>, in the same
+     * format as the signatures created from argument types by {@link MethodVisitor}.
+     */
+    private static String signature(String className, String methodName, String descriptor) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(className).append('.').append(methodName).append('(');
+        int pos = 1;
+        while (descriptor.charAt(pos) != ')') {
+            if (pos != 1)
+                sb.append(",");
+            appendType(sb, descriptor, pos);
+            pos = skipType(descriptor, pos);
+        }
+        return sb.append(')').toString();
+    }
+
+    private static int skipType(String descriptor, int pos) {
+        while (descriptor.charAt(pos) == '[')
+            pos++;
+        return descriptor.charAt(pos) == 'L' ? descriptor.indexOf(';', pos) + 1 : pos + 1;
+    }
+
+    /**
+     * Appends the name of the type described at a position of a descriptor, such as <code>int[]</code> for <code>[I</code>.
+     */
+    private static StringBuilder appendType(StringBuilder sb, String descriptor, int pos) {
+        int dimensions = 0;
+        while (descriptor.charAt(pos) == '[') {
+            dimensions++;
+            pos++;
+        }
+        char c = descriptor.charAt(pos);
+        if (c == 'L') {
+            int end = descriptor.indexOf(';', pos);
+            for (int i = pos + 1; i < end; i++) {
+                char nameChar = descriptor.charAt(i);
+                sb.append(nameChar == '/' ? '.' : nameChar);
+            }
+        }
+        else
+            sb.append(primitiveName(c));
+        for (int i = 0; i < dimensions; i++)
+            sb.append("[]");
+        return sb;
+    }
+
+    private static String primitiveName(char c) {
+        switch (c) {
+            case 'Z': return "boolean";
+            case 'B': return "byte";
+            case 'C': return "char";
+            case 'S': return "short";
+            case 'I': return "int";
+            case 'J': return "long";
+            case 'F': return "float";
+            case 'D': return "double";
+            case 'V': return "void";
+        }
+        throw new RuntimeException("Invalid type descriptor: "+c);
+    }
+
     public void start() {
         visitJavaClass(clazz);
     }
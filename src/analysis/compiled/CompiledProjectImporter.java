@@ -1,26 +1,95 @@
 package analysis.compiled;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
 import java.util.HashMap;
-import java.util.Map.Entry;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
 
 import org.apache.bcel.classfile.ClassParser;
+import org.apache.bcel.classfile.JavaClass;
+
+import analysis.code.CallEdgeConsumer;
+import analysis.code.CallGraph;
 
 public class CompiledProjectImporter {
-	private ArrayList<String> visited = new ArrayList<String>();
+	private static final String VERSIONS_DIRECTORY = "META-INF/versions/";
+	private HashSet<String> visited = new HashSet<String>();
 	public boolean singleTimeVisit(String id) {
-		if(visited.contains(id))
-			return false;
-		visited.add(id);
-		return true;
+		return visited.add(id);
 	}
-	
+
 	public CompiledProjectImporter() {
 	}
-	
+
+	/**
+	 * <h1>compileAndImport</h1>
+	 * Compiles all <code>.java</code> files of a directory and imports the generated classes, using the classpath of
+	 * the running JVM to resolve libraries.
+	 * @param path a directory path
+	 * @see #compileAndImport(String, String, int)
+	 */
 	public void compileAndImport(String path) {
+		compileAndImport(path, null, 1);
+	}
+	/**
+	 * <h1>compileAndImport</h1>
+	 * Compiles all <code>.java</code> files of a directory with the system Java compiler and imports the generated classes.
+	 * Class files are kept in memory and are parsed directly from their bytes, similarly to {@link #importPath(String, int)}.
+	 * Compilation errors are printed and, since the compiler may then not generate any classes, nothing may be imported.
+	 * @param path a directory path
+	 * @param classpath the classpath used to resolve libraries, or null to use the classpath of the running JVM
+	 * @param parallelism the number of threads used to parse and visit compiled classes
+	 */
+	public void compileAndImport(String path, String classpath, int parallelism) {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if(compiler==null)
+			throw new RuntimeException("No Java compiler is available in this runtime");
+		ArrayList<String> files = listFiles(path, ".java", new ArrayList<String>());
+		if(files.isEmpty())
+			return;
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		ArrayList<String> options = new ArrayList<String>();
+		options.add("-proc:none");
+		options.add("-classpath");
+		options.add(classpath==null?System.getProperty("java.class.path"):classpath);
+		InMemoryFileManager fileManager;
+		try(StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+			fileManager = new InMemoryFileManager(standardFileManager);
+			compiler.getTask(null, fileManager, diagnostics, options, null, standardFileManager.getJavaFileObjectsFromStrings(files)).call();
+		}
+		catch(IOException e) {
+			System.err.println(path+": "+e.toString());
+			return;
+		}
+		for(Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+			if(diagnostic.getKind()==Diagnostic.Kind.ERROR)
+				System.err.println(diagnostic.toString());
+		String[] classNames = fileManager.getClassNames();
+		ArrayList<String> ids = new ArrayList<String>(Arrays.asList(classNames));
+		importClasses(ids, i -> new ClassParser(new ByteArrayInputStream(fileManager.getClassBytes(classNames[i])), classNames[i]+".class").parse(), parallelism);
 	}
-	
+
 	public void importPath(String path) {
 	    File directory = new File(path);
 	    File[] fList = directory.listFiles();
@@ -28,12 +97,246 @@ public class CompiledProjectImporter {
 	        if (file.isFile()) {
 	        	if(file.getPath().endsWith(".class"))
 	        		importFile(file.getPath());
-	        } 
+	        }
 	        else if (file.isDirectory()) {
 	        	importPath(file.getPath());
 	        }
 	    }
 	}
+	/**
+	 * <h1>importPath</h1>
+	 * Parallel version of {@link #importPath(String)}. Class files are parsed and visited by a pool of threads,
+	 * each of which registers the methods and calls of a class in a separate importer. These are merged in the
+	 * same order as {@link #importPath(String)} visits files, so method indexes and calls are the same as
+	 * in sequential imports.
+	 * @param path a directory path
+	 * @param parallelism the number of threads used to parse and visit class files
+	 */
+	public void importPath(String path, int parallelism) {
+		ArrayList<String> files = listClassFiles(path, new ArrayList<String>());
+		importClasses(files, i -> new ClassParser(files.get(i)).parse(), parallelism);
+	}
+	/**
+	 * <h1>importJar</h1>
+	 * Imports all classes of a jar or zip file without extracting them. For multi-release jars, each class is
+	 * imported from the highest version directory under <code>META-INF/versions</code> that is supported by the
+	 * running Java version, or from its base entry if there is none.
+	 * @param path the path of a jar or zip file
+	 */
+	public void importJar(String path) {
+		importJar(path, 1);
+	}
+	/**
+	 * <h1>importJar</h1>
+	 * Parallel version of {@link #importJar(String)}, which imports classes similarly to {@link #importPath(String, int)}.
+	 * @param path the path of a jar or zip file
+	 * @param parallelism the number of threads used to parse and visit class files
+	 */
+	public void importJar(String path, int parallelism) {
+		try(ZipFile zip = new ZipFile(path)) {
+			ArrayList<ZipEntry> entries = listClassEntries(zip);
+			ArrayList<String> ids = new ArrayList<String>();
+			for(ZipEntry entry : entries)
+				ids.add(path+"!/"+entry.getName());
+			importClasses(ids, i -> {
+				try(InputStream in = zip.getInputStream(entries.get(i))) {
+					return new ClassParser(in, ids.get(i)).parse();
+				}
+			}, parallelism);
+		}
+		catch(IOException e) {
+			System.err.println(path+": "+e.toString());
+		}
+	}
+	/**
+	 * <h1>importClasspath</h1>
+	 * Sequential version of {@link #importClasspath(String, int)}.
+	 * @param classpath the classpath
+	 */
+	public void importClasspath(String classpath) {
+		importClasspath(classpath, 1);
+	}
+	/**
+	 * <h1>importClasspath</h1>
+	 * Imports all classes of a classpath, whose elements are separated by {@link File#pathSeparator}. Elements can be
+	 * directories, jar or zip files, or directories ending with <code>*</code>, in which case all jar files of the directory are imported.
+	 * @param classpath the classpath
+	 * @param parallelism the number of threads used to parse and visit class files
+	 * @see #importPath(String, int)
+	 * @see #importJar(String, int)
+	 */
+	public void importClasspath(String classpath, int parallelism) {
+		for(String element : classpath.split(File.pathSeparator)) {
+			if(element.isEmpty())
+				continue;
+			if(element.endsWith("*")) {
+				File[] jars = new File(element.substring(0, element.length()-1)).listFiles();
+				if(jars!=null)
+					for(File jar : jars)
+						if(jar.isFile() && isArchive(jar.getName()))
+							importJar(jar.getPath(), parallelism);
+			}
+			else if(new File(element).isDirectory())
+				importPath(element, parallelism);
+			else if(new File(element).isFile() && isArchive(element))
+				importJar(element, parallelism);
+			else
+				System.err.println(element+": not a directory or jar file");
+		}
+	}
+	private static boolean isArchive(String name) {
+		String lowerCase = name.toLowerCase();
+		return lowerCase.endsWith(".jar") || lowerCase.endsWith(".zip");
+	}
+	/**
+	 * <h1>listClassEntries</h1>
+	 * @param zip a jar or zip file
+	 * @return the class entries of the file in their order, using the entries of multi-release jars that are supported by the running Java version
+	 */
+	private static ArrayList<ZipEntry> listClassEntries(ZipFile zip) throws IOException {
+		boolean multiRelease = false;
+		ZipEntry manifestEntry = zip.getEntry(JarFile.MANIFEST_NAME);
+		if(manifestEntry!=null)
+			try(InputStream in = zip.getInputStream(manifestEntry)) {
+				multiRelease = "true".equalsIgnoreCase(new Manifest(in).getMainAttributes().getValue("Multi-Release"));
+			}
+		int runtimeVersion = getRuntimeVersion();
+		LinkedHashMap<String, ZipEntry> entries = new LinkedHashMap<String, ZipEntry>();
+		HashMap<String, Integer> versions = new HashMap<String, Integer>();
+		Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+		while(zipEntries.hasMoreElements()) {
+			ZipEntry entry = zipEntries.nextElement();
+			String name = entry.getName();
+			if(entry.isDirectory() || !name.endsWith(".class") || name.endsWith("module-info.class"))
+				continue;
+			int version = 0;
+			if(name.startsWith(VERSIONS_DIRECTORY)) {
+				int separator = name.indexOf('/', VERSIONS_DIRECTORY.length());
+				if(!multiRelease || separator==-1)
+					continue;
+				try {
+					version = Integer.parseInt(name.substring(VERSIONS_DIRECTORY.length(), separator));
+				}
+				catch(NumberFormatException e) {
+					continue;
+				}
+				if(version>runtimeVersion)
+					continue;
+				name = name.substring(separator+1);
+			}
+			else if(name.startsWith("META-INF/"))
+				continue;
+			Integer previousVersion = versions.get(name);
+			if(previousVersion==null || previousVersion<version) {
+				versions.put(name, version);
+				entries.put(name, entry);
+			}
+		}
+		return new ArrayList<ZipEntry>(entries.values());
+	}
+	private static int getRuntimeVersion() {
+		String version = System.getProperty("java.specification.version");
+		if(version.startsWith("1."))
+			version = version.substring(2);
+		return Integer.parseInt(version);
+	}
+	/**
+	 * <h1>ClassReader</h1>
+	 * Reads the i-th class of a list.
+	 */
+	private interface ClassReader {
+		JavaClass read(int i) throws Exception;
+	}
+	/**
+	 * <h1>importClasses</h1>
+	 * Imports a list of classes. If multiple threads are used, each one registers the methods and calls of a class
+	 * in a separate importer. These are merged in the order of the list, so that method indexes and calls are the same
+	 * as in sequential imports.
+	 * @param ids the unique names of classes, such as their file paths
+	 * @param reader the reader of classes, which is called in parallel when multiple threads are used
+	 * @param parallelism the number of threads used to parse and visit classes
+	 */
+	private void importClasses(ArrayList<String> ids, ClassReader reader, int parallelism) {
+		if(parallelism<2 || ids.size()<2) {
+			for(int i=0;i<ids.size();i++) {
+				try {
+					new ClassVisitor(reader.read(i), this).start();
+				}
+				catch(Exception e) {
+					System.err.println(ids.get(i)+": "+e.toString());
+				}
+			}
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, ids.size()));
+		try {
+			ArrayList<Future<CompiledProjectImporter>> visitedClasses = new ArrayList<Future<CompiledProjectImporter>>();
+			for(int i=0;i<ids.size();i++) {
+				int index = i;
+				visitedClasses.add(executor.submit(() -> {
+					CompiledProjectImporter classImporter = new CompiledProjectImporter();
+					new ClassVisitor(reader.read(index), classImporter).start();
+					return classImporter;
+				}));
+			}
+			for(int i=0;i<ids.size();i++) {
+				try {
+					merge(visitedClasses.get(i).get());
+				}
+				catch(ExecutionException e) {
+					System.err.println(ids.get(i)+": "+e.getCause().toString());
+				}
+				catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	/**
+	 * <h1>listClassFiles</h1>
+	 * @param path a directory path
+	 * @param files the list in which to append <code>.class</code> file paths in the order visited by {@link #importPath(String)}
+	 * @return the given list of files
+	 */
+	protected static ArrayList<String> listClassFiles(String path, ArrayList<String> files) {
+		return listFiles(path, ".class", files);
+	}
+	private static ArrayList<String> listFiles(String path, String extension, ArrayList<String> files) {
+	    File[] fList = new File(path).listFiles();
+	    if(fList==null)
+	    	return files;
+	    for (File file : fList) {
+	        if (file.isFile()) {
+	        	if(file.getPath().endsWith(extension))
+	        		files.add(file.getPath());
+	        }
+	        else if (file.isDirectory()) {
+	        	listFiles(file.getPath(), extension, files);
+	        }
+	    }
+	    return files;
+	}
+	/**
+	 * <h1>merge</h1>
+	 * Adds the methods and calls of another importer, as if its classes had been visited by this one.
+	 * Nothing is added if any of its classes has already been visited.
+	 * @param importer an importer whose calls are stored
+	 */
+	private void merge(CompiledProjectImporter importer) {
+		for(String id : importer.visited)
+			if(visited.contains(id))
+				return;
+		visited.addAll(importer.visited);
+		int[] indexes = new int[importer.methodNames.size()];
+		for(int i=0;i<indexes.length;i++)
+			indexes[i] = getMethodIndex(importer.methodNames.get(i));
+		for(int k=0;k<importer.callCount;k++)
+			registerVisit(indexes[importer.callers[k]], indexes[importer.callees[k]]);
+	}
 	public void importFile(String path) {
 		try {
 			ClassParser cp = new ClassParser(path);
@@ -45,34 +348,111 @@ public class CompiledProjectImporter {
 			//e.printStackTrace();
 		}
 	}
-	
+
 	private HashMap<String, Integer> methods = new HashMap<String, Integer>();
-	private HashMap<Integer, String> methodIndexes = new HashMap<Integer, String>();
-	private ArrayList<Entry<Integer, Integer>> calls = new ArrayList<Entry<Integer, Integer>>();
-	
+	private ArrayList<String> methodNames = new ArrayList<String>();
+	private int[] callers = new int[16];
+	private int[] callees = new int[16];
+	private int callCount = 0;
+	private CallEdgeConsumer callConsumer = null;
+
 	public int getMethodIndex(String name) {
 		Integer ret = methods.get(name);
 		if(ret==null) {
-			methods.put(name, ret = methods.size());
-			methodIndexes.put(ret, name);
+			methods.put(name, ret = methodNames.size());
+			methodNames.add(name);
 		}
 		return (int)ret;
 	}
 	public String getMethodName(int index) {
-		return methodIndexes.get(index);
+		return index>=0 && index<methodNames.size()?methodNames.get(index):null;
+	}
+	/**
+	 * <h1>getMethodCount</h1>
+	 * @return the number of method signatures found, which are indexed from 0 to this number minus one
+	 */
+	public int getMethodCount() {
+		return methodNames.size();
+	}
+	/**
+	 * <h1>getCallCount</h1>
+	 * @return the number of stored calls, including repeated ones
+	 */
+	public int getCallCount() {
+		return callCount;
 	}
-	
+	/**
+	 * <h1>getCallMatrix</h1>
+	 * This requires memory proportional to the square of the number of methods and should only be used for small projects.
+	 * @return a matrix <code>A</code> in which <code>A[i][j]</code> is 1 if method <code>i</code> calls method <code>j</code> and 0 otherwise
+	 * @see #getCallGraph()
+	 */
 	public double[][] getCallMatrix() {
-		int n = methods.size();
+		int n = methodNames.size();
 		double[][] A = new double[n][n];
-		for(Entry<Integer, Integer> entry : calls)
-			A[entry.getKey()][entry.getValue()] = 1;
+		for(int k=0;k<callCount;k++)
+			A[callers[k]][callees[k]] = 1;
 		return A;
 	}
+	/**
+	 * <h1>getCallGraph</h1>
+	 * @return a sparse graph of the stored calls between method indexes, without repeated calls
+	 * @see #getMethodName(int)
+	 */
+	public CallGraph getCallGraph() {
+		int n = methodNames.size();
+		int[] rowOffsets = new int[n+1];
+		for(int k=0;k<callCount;k++)
+			rowOffsets[callers[k]+1]++;
+		for(int i=0;i<n;i++)
+			rowOffsets[i+1] += rowOffsets[i];
+		int[] fill = Arrays.copyOf(rowOffsets, n);
+		int[] columnIndices = new int[callCount];
+		for(int k=0;k<callCount;k++)
+			columnIndices[fill[callers[k]]++] = callees[k];
+		return new CallGraph(n, rowOffsets, columnIndices);
+	}
+	/**
+	 * <h1>streamCalls</h1>
+	 * Passes all stored calls to a consumer in the order in which they were visited, without creating a call matrix.
+	 * @param consumer the consumer of <code>(caller, callee)</code> method indexes
+	 * @see #getMethodName(int)
+	 */
+	public void streamCalls(CallEdgeConsumer consumer) {
+		for(int k=0;k<callCount;k++)
+			consumer.accept(callers[k], callees[k]);
+	}
+	/**
+	 * <h1>setCallConsumer</h1>
+	 * While a consumer is set, calls are passed to it as soon as they are visited instead of being stored,
+	 * so that they can be processed while classes are still being imported. Such calls are not included
+	 * in {@link #getCallMatrix()} or {@link #streamCalls(CallEdgeConsumer)}.
+	 * @param consumer the consumer of <code>(caller, callee)</code> method indexes, or null to store calls again
+	 */
+	public void setCallConsumer(CallEdgeConsumer consumer) {
+		callConsumer = consumer;
+	}
 
 	public void registerVisit(String from, String to) {
-		int f = getMethodIndex(from);
-		int t = getMethodIndex(to);
-		calls.add(new java.util.AbstractMap.SimpleEntry<Integer, Integer>(f, t));
+		registerVisit(getMethodIndex(from), getMethodIndex(to));
+	}
+	/**
+	 * <h1>registerVisit</h1>
+	 * Stores a call between method indexes obtained with {@link #getMethodIndex(String)}.
+	 * @param from the index of the calling method
+	 * @param to the index of the called method
+	 */
+	public void registerVisit(int from, int to) {
+		if(callConsumer!=null) {
+			callConsumer.accept(from, to);
+			return;
+		}
+		if(callCount==callers.length) {
+			callers = Arrays.copyOf(callers, 2*callCount);
+			callees = Arrays.copyOf(callees, 2*callCount);
+		}
+		callers[callCount] = from;
+		callees[callCount] = to;
+		callCount++;
 	}
 }
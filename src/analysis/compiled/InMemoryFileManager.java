@@ -0,0 +1,75 @@
+package analysis.compiled;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.TreeMap;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+
+/**
+ * <h1>InMemoryFileManager</h1>
+ * This class keeps the class files generated by a compiler in memory instead of writing them to disk.
+ * Source files and libraries are still read through the wrapped file manager.
+ * @author Manios Krasanakis
+ */
+class InMemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+	private TreeMap<String, ClassOutput> classes = new TreeMap<String, ClassOutput>();
+
+	/**
+	 * Constructor that wraps a file manager.
+	 * @param fileManager the file manager used to read files
+	 */
+	public InMemoryFileManager(JavaFileManager fileManager) {
+		super(fileManager);
+	}
+	/**
+	 * <h1>ClassOutput</h1>
+	 * A class file whose contents are written to a byte array.
+	 */
+	private static class ClassOutput extends SimpleJavaFileObject {
+		private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		public ClassOutput(String className) {
+			super(URI.create("mem:///"+className.replace('.', '/')+Kind.CLASS.extension), Kind.CLASS);
+		}
+		@Override
+		public OutputStream openOutputStream() {
+			bytes.reset();
+			return bytes;
+		}
+	}
+	@Override
+	public JavaFileObject getJavaFileForOutput(Location location, String className, Kind kind, FileObject sibling) {
+		ClassOutput output = new ClassOutput(className);
+		synchronized(classes) {
+			classes.put(className, output);
+		}
+		return output;
+	}
+	/**
+	 * <h1>getClassNames</h1>
+	 * @return the names of compiled classes in alphabetical order
+	 */
+	public String[] getClassNames() {
+		synchronized(classes) {
+			return classes.keySet().toArray(new String[classes.size()]);
+		}
+	}
+	/**
+	 * <h1>getClassBytes</h1>
+	 * @param className the name of a compiled class
+	 * @return the contents of the class file, or null if no such class has been compiled
+	 */
+	public byte[] getClassBytes(String className) {
+		ClassOutput output;
+		synchronized(classes) {
+			output = classes.get(className);
+		}
+		return output==null?null:output.bytes.toByteArray();
+	}
+}
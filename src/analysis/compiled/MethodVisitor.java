@@ -9,28 +9,38 @@ public class MethodVisitor extends EmptyVisitor {
     private MethodGen mg;
     private ConstantPoolGen cp;
     private String format;
-    private String formatCall;
+    private int formatIndex = -1;
+    private int[] signatureIndexes;
     private CompiledProjectImporter project;
 
     public MethodVisitor(MethodGen m, JavaClass jc, CompiledProjectImporter project) {
+        this(m, jc, project, new int[m.getConstantPool().getSize()]);
+    }
+
+    /**
+     * Constructor that shares the method indexes of called signatures with other methods of the same class.
+     * @param signatureIndexes an array with one element per constant pool entry of the class, which holds
+     *  the method index of the signature invoked by the entry plus one (zero for entries not invoked yet)
+     */
+    public MethodVisitor(MethodGen m, JavaClass jc, CompiledProjectImporter project, int[] signatureIndexes) {
     	this.project = project;
+    	this.signatureIndexes = signatureIndexes;
         visitedClass = jc;
         mg = m;
         cp = mg.getConstantPool();
-        //format = visitedClass.getClassName() + "." + mg.getName() + "(" + argumentList(mg.getArgumentTypes()) + ")";
-        formatCall = "%s.%s(%s)";
-        format = String.format(formatCall, visitedClass.getClassName(), mg.getName(), argumentList(mg.getArgumentTypes()));
+        format = signature(visitedClass.getClassName(), mg.getName(), mg.getArgumentTypes());
     }
 
-    private String argumentList(Type[] arguments) {
+    private static String signature(String className, String methodName, Type[] arguments) {
         StringBuilder sb = new StringBuilder();
+        sb.append(className).append('.').append(methodName).append('(');
         for (int i = 0; i < arguments.length; i++) {
             if (i != 0) {
                 sb.append(",");
             }
             sb.append(arguments[i].toString());
         }
-        return sb.toString();
+        return sb.append(')').toString();
     }
 
     public void start() {
@@ -50,28 +60,43 @@ public class MethodVisitor extends EmptyVisitor {
                 && !(i instanceof ReturnInstruction));
     }
 
+    /**
+     * Registers a call to the method invoked by an instruction. Signatures of invoked methods are only
+     * created the first time each constant pool entry is invoked by the class.
+     */
+    private void visitInvoke(InvokeInstruction i) {
+        if (formatIndex == -1)
+            formatIndex = project.getMethodIndex(format);
+        int signatureIndex = signatureIndexes[i.getIndex()] - 1;
+        if (signatureIndex == -1) {
+            signatureIndex = project.getMethodIndex(signature(i.getReferenceType(cp).toString(), i.getMethodName(cp), i.getArgumentTypes(cp)));
+            signatureIndexes[i.getIndex()] = signatureIndex + 1;
+        }
+        project.registerVisit(formatIndex, signatureIndex);
+    }
+
     @Override
     public void visitINVOKEVIRTUAL(INVOKEVIRTUAL i) {
-        project.registerVisit(format,String.format(formatCall, i.getReferenceType(cp), i.getMethodName(cp),argumentList(i.getArgumentTypes(cp))));
+        visitInvoke(i);
     }
 
     @Override
     public void visitINVOKEINTERFACE(INVOKEINTERFACE i) {
-        project.registerVisit(format,String.format(formatCall, i.getReferenceType(cp), i.getMethodName(cp),argumentList(i.getArgumentTypes(cp))));
+        visitInvoke(i);
     }
 
     @Override
     public void visitINVOKESPECIAL(INVOKESPECIAL i) {
-        project.registerVisit(format,String.format(formatCall, i.getReferenceType(cp), i.getMethodName(cp),argumentList(i.getArgumentTypes(cp))));
+        visitInvoke(i);
     }
 
     @Override
     public void visitINVOKESTATIC(INVOKESTATIC i) {
-        project.registerVisit(format,String.format(formatCall, i.getReferenceType(cp), i.getMethodName(cp),argumentList(i.getArgumentTypes(cp))));
+        visitInvoke(i);
     }
 
     @Override
     public void visitINVOKEDYNAMIC(INVOKEDYNAMIC i) {
-        project.registerVisit(format,String.format(formatCall, i.getReferenceType(cp), i.getMethodName(cp),argumentList(i.getArgumentTypes(cp))));
+        visitInvoke(i);
     }
 }